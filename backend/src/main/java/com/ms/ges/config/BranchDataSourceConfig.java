@@ -0,0 +1,195 @@
+package com.ms.ges.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+
+import com.ms.ges.service.BranchContext;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Branch partitioning. Every branch-scoped entity carries a {@code @TenantId} branch column that
+ * Hibernate fills on insert and filters on every query from {@link BranchContext}. Branches
+ * listed under {@code branches.databases} additionally get a database of their own, which is
+ * brought up to the current schema the same way as the default one. The default database can
+ * have read replicas under {@code replicas.urls}, see {@link ReplicaRoutingDataSource}.
+ */
+@Slf4j
+@Configuration
+public class BranchDataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor branchRoutingDataSourcePostProcessor(Environment environment,
+                                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RoutingPostProcessor(environment, meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer branchHibernatePropertiesCustomizer(Environment environment) {
+        Set<String> ownDatabases = branchDatabaseUrls(environment).keySet();
+        return properties -> {
+            properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new BranchTenantResolver());
+            properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(new BranchSchemaIntegrator(ownDatabases)));
+        };
+    }
+
+    private static Map<String, String> branchDatabaseUrls(Environment environment) {
+        return Binder.get(environment)
+                .bind("branches.databases", Bindable.mapOf(String.class, String.class))
+                .orElseGet(Map::of);
+    }
+
+    // Runs before the statement counting wrapper, so statements on branch databases and replicas are counted too
+    private static final class RoutingPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        private final Environment environment;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        RoutingPostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.environment = environment;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof BranchRoutingDataSource
+                    || bean instanceof LazyConnectionDataSourceProxy || bean instanceof StatementCountingDataSource) {
+                return bean;
+            }
+            Map<String, DataSource> branchDataSources = new LinkedHashMap<>();
+            branchDatabaseUrls(environment).forEach((branch, url) -> {
+                if (!BranchContext.DEFAULT_BRANCH.equals(branch)) {
+                    branchDataSources.put(branch, branchDataSource(branch, url));
+                }
+            });
+            BranchRoutingDataSource primary = new BranchRoutingDataSource(dataSource, branchDataSources);
+
+            List<String> replicaUrls = Binder.get(environment)
+                    .bind("replicas.urls", Bindable.listOf(String.class))
+                    .orElseGet(List::of).stream()
+                    .filter(url -> !url.isBlank())
+                    .toList();
+            if (replicaUrls.isEmpty()) {
+                return primary;
+            }
+            List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+            for (int i = 0; i < replicaUrls.size(); i++) {
+                HikariDataSource replica = pool("replica-" + (i + 1), replicaUrls.get(i));
+                replica.setReadOnly(true);
+                // A replica that is down at startup is found out on first use, not here, and one
+                // that does not answer soon is skipped rather than waited for
+                replica.setInitializationFailTimeout(-1);
+                replica.setConnectionTimeout(environment.getProperty("replicas.connection-timeout", Duration.class,
+                        Duration.ofSeconds(1)).toMillis());
+                replicas.add(new ReplicaRoutingDataSource.Replica(replica.getPoolName(), replica));
+            }
+            // Spring marks read-only transactions on the connection before their first statement,
+            // which is when the proxy picks between the primary and the read-only data source
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+            proxy.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicas, primary.getOwnDatabases(),
+                    environment.getProperty("replicas.retry-interval", Duration.class, Duration.ofSeconds(30)),
+                    meterRegistry));
+            log.info("Read-only transactions go to {} replica(s)", replicas.size());
+            return proxy;
+        }
+
+        private DataSource branchDataSource(String branch, String url) {
+            return pool("branch-" + branch, url);
+        }
+
+        private HikariDataSource pool(String name, String url) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(environment.getProperty("spring.datasource.username"))
+                    .password(environment.getProperty("spring.datasource.password"))
+                    .build();
+            dataSource.setPoolName(name);
+            dataSource.setMaximumPoolSize(environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+            return dataSource;
+        }
+    }
+
+    static final class BranchTenantResolver implements CurrentTenantIdentifierResolver<String> {
+
+        @Override
+        public String resolveCurrentTenantIdentifier() {
+            return BranchContext.current();
+        }
+
+        @Override
+        public boolean validateExistingCurrentSessions() {
+            return false;
+        }
+    }
+
+    /**
+     * Applies the configured schema action ({@code ddl-auto}) to every branch database. Hibernate
+     * itself only manages the default database.
+     */
+    static final class BranchSchemaIntegrator implements Integrator {
+
+        private final Set<String> ownDatabases;
+
+        BranchSchemaIntegrator(Set<String> ownDatabases) {
+            this.ownDatabases = ownDatabases;
+        }
+
+        @Override
+        public void integrate(@NonNull Metadata metadata, @NonNull BootstrapContext bootstrapContext,
+                              @NonNull SessionFactoryImplementor sessionFactory) {
+            Map<String, Object> settings = new HashMap<>(sessionFactory.getProperties());
+            for (String branch : ownDatabases) {
+                if (BranchContext.DEFAULT_BRANCH.equals(branch)) {
+                    continue;
+                }
+                log.info("Updating schema of the database for branch {}", branch);
+                BranchContext.run(branch, () -> SchemaManagementToolCoordinator.process(
+                        metadata, sessionFactory.getServiceRegistry(), settings, action -> { }));
+            }
+        }
+
+        @Override
+        public void disintegrate(@NonNull SessionFactoryImplementor sessionFactory,
+                                 @NonNull SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ms.ges.config;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.ms.ges.service.Branches;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Brings a database from before branches up to date, ahead of Hibernate's schema update.
+ * {@code ddl-auto=update} cannot add the required branch column to a table that has rows, and
+ * keeps the unique constraints that did not include the branch, so the same username or rollup key
+ * could not exist in two branches sharing the database. This adds the column, fills it in for the
+ * existing rows and drops those constraints; their replacements that include the branch are added
+ * by Hibernate. A new database has no tables yet and is left alone, and both steps find nothing to
+ * do once done, so this can run on every start.
+ */
+@Slf4j
+@Component
+public class BranchMigration {
+
+    private record LegacyUniqueConstraint(String table, Set<String> columns) {
+    }
+
+    // Tables from before branches; tables added since have always had the branch filled in
+    private static final List<String> TABLES = List.of(
+        "users", "suppliers", "stock_items", "stock_valuations", "cost_layers", "stock_audit_events",
+        "purchases", "purchase_items", "usages", "usage_rollups", "expenses", "expense_rollups",
+        "sync_state", "sync_tombstones"
+    );
+
+    private static final List<LegacyUniqueConstraint> UNIQUE_CONSTRAINTS = List.of(
+        new LegacyUniqueConstraint("users", Set.of("username")),
+        new LegacyUniqueConstraint("expense_rollups", Set.of("date", "category"))
+    );
+
+    private static final String UNIQUE_COLUMNS_SQL = "SELECT tc.constraint_name, kcu.column_name"
+            + " FROM information_schema.table_constraints tc"
+            + " JOIN information_schema.key_column_usage kcu ON kcu.constraint_schema = tc.constraint_schema"
+            + " AND kcu.constraint_name = tc.constraint_name"
+            + " WHERE tc.constraint_type = 'UNIQUE' AND LOWER(tc.table_name) = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Branches branches;
+
+    public BranchMigration(JdbcTemplate jdbcTemplate, Branches branches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.branches = branches;
+    }
+
+    // Rows of the default database go to the default branch, which runs first; a branch with a
+    // database of its own takes whatever that database held
+    @PostConstruct
+    public void migrate() {
+        branches.forEach(branch -> {
+            for (String table : TABLES) {
+                if (hasColumn(table, null) && !hasColumn(table, "branch")) {
+                    addBranchColumn(branch, table);
+                }
+            }
+            for (LegacyUniqueConstraint legacy : UNIQUE_CONSTRAINTS) {
+                for (String name : constraintsOn(legacy)) {
+                    jdbcTemplate.execute("ALTER TABLE " + legacy.table() + " DROP CONSTRAINT " + name);
+                    log.info("Dropped unique constraint {} on {}{} for branch {}", name, legacy.table(), legacy.columns(), branch);
+                }
+            }
+        });
+    }
+
+    private void addBranchColumn(String branch, String table) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN branch VARCHAR(255)");
+        int rows = jdbcTemplate.update("UPDATE " + table + " SET branch = ? WHERE branch IS NULL", branch);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN branch SET NOT NULL");
+        log.info("Assigned {} rows of {} to branch {}", rows, table, branch);
+    }
+
+    // A null column matches any column, so it checks that the table exists
+    private boolean hasColumn(String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean upperCase = metaData.storesUpperCaseIdentifiers();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                    upperCase ? table.toUpperCase(Locale.ROOT) : table,
+                    column == null ? null : upperCase ? column.toUpperCase(Locale.ROOT) : column)) {
+                return columns.next();
+            }
+        }));
+    }
+
+    private List<String> constraintsOn(LegacyUniqueConstraint legacy) {
+        Map<String, Set<String>> columnsByConstraint = new HashMap<>();
+        jdbcTemplate.query(UNIQUE_COLUMNS_SQL, rs -> {
+            columnsByConstraint.computeIfAbsent(rs.getString(1), name -> new TreeSet<>())
+                    .add(rs.getString(2).toLowerCase(Locale.ROOT));
+        }, legacy.table());
+        return columnsByConstraint.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(legacy.columns()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    // Makes the EntityManagerFactory, and with it Hibernate's schema update, wait for the migration
+    @Component
+    static class MigrateBeforeSchemaUpdate extends EntityManagerFactoryDependsOnPostProcessor {
+
+        MigrateBeforeSchemaUpdate() {
+            super(BranchMigration.class);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ms.ges.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.ms.ges.service.BranchContext;
+
+/**
+ * Sends each connection request to the database of the current branch. Branches without a
+ * database of their own share the default one, where rows are kept apart by their branch column.
+ */
+public class BranchRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Set<String> ownDatabases;
+
+    public BranchRoutingDataSource(DataSource defaultDataSource, Map<String, DataSource> branchDataSources) {
+        this.ownDatabases = Set.copyOf(branchDataSources.keySet());
+        setDefaultTargetDataSource(defaultDataSource);
+        setTargetDataSources(new HashMap<>(branchDataSources));
+        afterPropertiesSet();
+    }
+
+    public Set<String> getOwnDatabases() {
+        return ownDatabases;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return BranchContext.current();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ms.ges.config;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.ms.ges.service.Bulkheads;
+import com.ms.ges.service.Bulkheads.Bulkhead;
+import com.ms.ges.service.Bulkheads.Kind;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runs read-heavy analytics requests and usage/purchase writes in separate bulkheads, and sheds
+ * them with 503 when their bulkhead is saturated. Other requests are not limited.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Kind kind = classify(request);
+        if (kind == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Bulkhead bulkhead = bulkheads.get(kind);
+        boolean entered;
+        try {
+            entered = bulkhead.tryEnter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        if (!entered) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Server is busy, please retry\"}");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    static Kind classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        boolean read = HttpMethod.GET.matches(request.getMethod());
+        if (!read && (path.startsWith("/api/usages") || path.startsWith("/api/purchases") || path.startsWith("/api/sales"))) {
+            return Kind.TRANSACTIONAL;
+        }
+        if (path.startsWith("/api/reports")
+                || path.equals("/api/dashboard")
+                || path.startsWith("/api/exports")
+                || path.startsWith("/api/archive")
+                || path.startsWith("/api/audit")
+                || path.startsWith("/api/sync")
+                || path.equals("/api/stocks/valuation")
+                || path.equals("/api/suppliers/ranking")
+                || (path.startsWith("/api/suppliers/") && path.endsWith("/spend"))) {
+            return Kind.ANALYTICS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ms.ges.config;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.service.Branches;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves quantities and money out of the former floating-point columns into the scaled integer
+ * columns that {@code ddl-auto=update} adds next to them (see {@link FixedPoint}), then drops the
+ * former columns. A database without them, such as a new one, is left alone, so this runs once
+ * per database. Rows already copied are skipped, so an interrupted run can simply run again.
+ */
+@Slf4j
+@Component
+public class FixedPointMigration {
+
+    private record LegacyColumn(String table, String column, String scaledColumn, int scale) {
+    }
+
+    private static final List<LegacyColumn> COLUMNS = List.of(
+        new LegacyColumn("stock_items", "quantity", "quantity_milli", FixedPoint.QUANTITY_SCALE),
+        new LegacyColumn("stock_items", "unit_price", "unit_price_cents", FixedPoint.MONEY_SCALE),
+        new LegacyColumn("stock_items", "reorder_level", "reorder_level_milli", FixedPoint.QUANTITY_SCALE),
+        new LegacyColumn("usages", "quantity_used", "quantity_used_milli", FixedPoint.QUANTITY_SCALE),
+        new LegacyColumn("expenses", "amount", "amount_cents", FixedPoint.MONEY_SCALE),
+        new LegacyColumn("purchases", "total_amount", "total_amount_cents", FixedPoint.MONEY_SCALE),
+        new LegacyColumn("purchase_items", "quantity", "quantity_milli", FixedPoint.QUANTITY_SCALE),
+        new LegacyColumn("purchase_items", "price", "price_cents", FixedPoint.MONEY_SCALE),
+        new LegacyColumn("usage_rollups", "quantity_used", "quantity_used_milli", FixedPoint.QUANTITY_SCALE),
+        new LegacyColumn("expense_rollups", "amount", "amount_cents", FixedPoint.MONEY_SCALE)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Branches branches;
+
+    // Taking the EntityManagerFactory makes this run after Hibernate has added the new columns
+    public FixedPointMigration(JdbcTemplate jdbcTemplate, Branches branches, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.branches = branches;
+    }
+
+    // Branches sharing the default database find the former columns already gone after the first
+    @PostConstruct
+    public void migrate() {
+        branches.forEach(branch -> {
+            for (LegacyColumn legacy : COLUMNS) {
+                if (hasColumn(legacy.table(), legacy.column())) {
+                    migrate(branch, legacy);
+                }
+            }
+        });
+    }
+
+    private void migrate(String branch, LegacyColumn legacy) {
+        int rows = jdbcTemplate.update("UPDATE " + legacy.table() + " SET " + legacy.scaledColumn()
+                + " = ROUND(" + legacy.column() + " * " + legacy.scale() + ") WHERE " + legacy.scaledColumn()
+                + " IS NULL AND " + legacy.column() + " IS NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE " + legacy.table() + " DROP COLUMN " + legacy.column());
+        log.info("Moved {} rows of {}.{} to {} for branch {}", rows, legacy.table(), legacy.column(),
+                legacy.scaledColumn(), branch);
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean upperCase = metaData.storesUpperCaseIdentifiers();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+                    upperCase ? table.toUpperCase(Locale.ROOT) : table,
+                    upperCase ? column.toUpperCase(Locale.ROOT) : column)) {
+                return columns.next();
+            }
+        }));
+    }
+}
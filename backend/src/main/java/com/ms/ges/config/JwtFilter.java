@@ -1,11 +1,15 @@
 package com.ms.ges.config;
 
+import com.ms.ges.service.BranchContext;
+import com.ms.ges.service.Branches;
 import com.ms.ges.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,8 +25,12 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
+    // Picks the branch for requests without a token, such as login and register
+    public static final String BRANCH_HEADER = "X-Branch";
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final Branches branches;
 
     @Override
     protected void doFilterInternal(
@@ -31,16 +39,33 @@ public class JwtFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
+        final boolean bearer = authHeader != null && authHeader.startsWith("Bearer ");
+        final String jwt = bearer ? authHeader.substring(7) : null;
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            filterChain.doFilter(request, response);
+        String branch = bearer ? jwtService.extractBranch(jwt) : request.getHeader(BRANCH_HEADER);
+        if (branch == null || branch.isBlank()) {
+            branch = BranchContext.DEFAULT_BRANCH;
+        }
+        if (!branches.exists(branch)) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Unknown branch\"}");
             return;
         }
 
-        jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        BranchContext.set(branch);
+        try {
+            if (bearer) {
+                authenticate(request, jwt);
+            }
+            filterChain.doFilter(request, response);
+        } finally {
+            BranchContext.clear();
+        }
+    }
+
+    private void authenticate(HttpServletRequest request, String jwt) {
+        final String username = jwtService.extractUsername(jwt);
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
@@ -56,6 +81,5 @@ public class JwtFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
         }
-        filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.ms.ges.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import com.ms.ges.model.CostLayer;
+import com.ms.ges.model.Expense;
+import com.ms.ges.model.ExpenseRollup;
+import com.ms.ges.model.Purchase;
+import com.ms.ges.model.PurchaseItem;
+import com.ms.ges.model.StockAuditEvent;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.StockValuation;
+import com.ms.ges.model.Supplier;
+import com.ms.ges.model.SyncState;
+import com.ms.ges.model.Tombstone;
+import com.ms.ges.model.Usage;
+import com.ms.ges.model.UsageRollup;
+import com.ms.ges.model.User;
+import com.ms.ges.service.PosIngestionService.PosEvent;
+import com.ms.ges.service.ReportJob;
+
+/**
+ * Reflection hints the AOT engine cannot infer on its own, for the AOT JAR and the native image.
+ * Controller signatures are covered automatically, but entities also travel inside
+ * {@code Map<String, Object>} responses (sync, reports) and in the POS ingest log, and jjwt finds its implementation and
+ * its Jackson serializer by class name at runtime.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHints.Registrar.class)
+public class NativeHints {
+
+    private static final Class<?>[] JSON_TYPES = {
+        User.class, StockItem.class, Supplier.class, Usage.class, Purchase.class, PurchaseItem.class,
+        Expense.class, CostLayer.class, StockValuation.class, Tombstone.class, SyncState.class,
+        UsageRollup.class, ExpenseRollup.class, StockAuditEvent.class, ReportJob.class, PosEvent.class
+    };
+
+    // Read from NDJSON bodies with an ObjectReader, not bound through a controller signature
+    private static final String[] JSON_TYPE_NAMES = {
+        "com.ms.ges.controller.PosEventLine"
+    };
+
+    private static final String[] JJWT_TYPES = {
+        "io.jsonwebtoken.impl.DefaultJwtBuilder",
+        "io.jsonwebtoken.impl.DefaultJwtParser",
+        "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+        "io.jsonwebtoken.impl.DefaultClaims",
+        "io.jsonwebtoken.impl.DefaultHeader",
+        "io.jsonwebtoken.impl.DefaultJwsHeader",
+        "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+        "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+        "io.jsonwebtoken.jackson.io.JacksonSerializer",
+        "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    };
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+            for (String type : JSON_TYPE_NAMES) {
+                hints.reflection().registerType(TypeReference.of(type), MemberCategory.values());
+            }
+
+            for (String type : JJWT_TYPES) {
+                hints.reflection().registerType(TypeReference.of(type),
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+            // jjwt 0.11 discovers its serializer through ServiceLoader
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ms.ges.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.ms.ges.model.Role;
+import com.ms.ges.service.BranchContext;
+import com.ms.ges.service.RateLimiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Rejects authenticated requests over the caller's per-route budget with 429. Runs in the
+ * security chain right after {@link JwtFilter}, so anonymous requests are never limited here.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    private final RateLimiter rateLimiter;
+    private final boolean enabled;
+
+    public RateLimitFilter(RateLimiter rateLimiter, @Value("${rate-limit.enabled:true}") boolean enabled) {
+        this.rateLimiter = rateLimiter;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Role role = enabled && authentication != null ? role(authentication) : null;
+        if (role == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Numeric ids are collapsed so that /api/usages/1 and /api/usages/2 share a bucket
+        String route = request.getMethod() + " " + ID_SEGMENT.matcher(request.getRequestURI()).replaceAll("/{id}");
+        // Usernames are only unique within a branch
+        String user = BranchContext.current() + "/" + authentication.getName();
+        long waitNanos = rateLimiter.tryAcquire(user, role, route);
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Too many requests, retry in " + retryAfterSeconds + " s\"}");
+    }
+
+    private static Role role(Authentication authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name.startsWith("ROLE_")) {
+                try {
+                    return Role.valueOf(name.substring("ROLE_".length()));
+                } catch (IllegalArgumentException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        return null;
+    }
+}
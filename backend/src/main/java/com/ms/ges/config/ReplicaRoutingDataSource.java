@@ -0,0 +1,101 @@
+package com.ms.ges.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.ms.ges.service.BranchContext;
+import com.ms.ges.service.ReplicaContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Where read-only transactions get their connection: the replicas of the default database in
+ * turn, or the primary when the thread is pinned to it, when the branch has a database of its own
+ * (those have no replicas) or when no replica can hand out a connection. A replica that fails is
+ * left out until {@code replicas.retry-interval} has passed.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long downUntil;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Set<String> ownDatabases;
+    private final long retryIntervalNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    // The registry is created long after the data source, so it is looked up when counting
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, Set<String> ownDatabases,
+                             Duration retryInterval, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.ownDatabases = Set.copyOf(ownDatabases);
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReplicaContext.primaryRequired() || ownDatabases.contains(BranchContext.current())) {
+            return onPrimary("pinned");
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            long now = System.nanoTime();
+            if (replica.downUntil - now > 0) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                count("replica", replica.name);
+                return connection;
+            } catch (SQLException e) {
+                replica.downUntil = now + retryIntervalNanos;
+                log.warn("Replica {} is unavailable, reading from the primary for now: {}", replica.name, e.getMessage());
+            }
+        }
+        return onPrimary("fallback");
+    }
+
+    // The replica pools only know their configured credentials, so other credentials read from the primary
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        count("primary", "credentials");
+        return primary.getConnection(username, password);
+    }
+
+    private Connection onPrimary(String reason) throws SQLException {
+        count("primary", reason);
+        return primary.getConnection();
+    }
+
+    private void count(String target, String detail) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("ges.datasource.reads", "target", target, "detail", detail).increment();
+        }
+    }
+}
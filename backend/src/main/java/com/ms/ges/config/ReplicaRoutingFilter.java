@@ -0,0 +1,59 @@
+package com.ms.ges.config;
+
+import java.io.IOException;
+import java.util.Set;
+
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.ms.ges.service.BranchContext;
+import com.ms.ges.service.ReadYourWrites;
+import com.ms.ges.service.ReplicaContext;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Pins a request to the primary database when it writes, or when its user wrote within the
+ * read-your-writes window, so nobody reads a replica that has not seen their own change yet.
+ * Runs in the security chain right after {@link JwtFilter}, which sets the user and the branch.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    // Submitting or cancelling a report job changes no data, so the job may read from a replica
+    private static final String REPORTS_PATH = "/api/reports/";
+
+    private final ReadYourWrites readYourWrites;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // Usernames are only unique within a branch
+        String user = authentication != null ? BranchContext.current() + "/" + authentication.getName() : null;
+        boolean write = !SAFE_METHODS.contains(request.getMethod()) && !request.getRequestURI().startsWith(REPORTS_PATH);
+
+        ReplicaContext.set(write || (user != null && readYourWrites.wroteRecently(user)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaContext.clear();
+            // Recorded even when the write failed, which at worst keeps a few reads on the primary
+            if (write && user != null) {
+                readYourWrites.recordWrite(user);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ms.ges.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.ms.ges.service.SqlStatementStats;
+import com.ms.ges.service.SqlStatementStats.RequestStatements;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Attributes JDBC statements to the endpoint that issued them. With
+ * {@code sql.statements.header-enabled} (development and tests only) the response is buffered
+ * so the final count, including lazy loads during serialization, can be sent as a header.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementFilter extends OncePerRequestFilter {
+
+    public static final String COUNT_HEADER = "X-SQL-Statements";
+    public static final String TIME_HEADER = "X-SQL-Time-Millis";
+
+    private final SqlStatementStats stats;
+    private final boolean headerEnabled;
+
+    public SqlStatementFilter(SqlStatementStats stats,
+                              @Value("${sql.statements.header-enabled:false}") boolean headerEnabled) {
+        this.stats = stats;
+        this.headerEnabled = headerEnabled;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = headerEnabled ? new ContentCachingResponseWrapper(response) : null;
+        stats.begin();
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            RequestStatements statements = stats.current();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            stats.end(request.getMethod() + " " + (pattern != null ? pattern : "unmatched"));
+            if (buffered != null) {
+                buffered.setHeader(COUNT_HEADER, String.valueOf(statements.getCount()));
+                buffered.setHeader(TIME_HEADER, String.format("%.3f", statements.getNanos() / 1e6));
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+}
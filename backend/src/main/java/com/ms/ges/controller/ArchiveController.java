@@ -0,0 +1,32 @@
+package com.ms.ges.controller;
+
+import java.util.Map;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.service.ArchiveService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/archive")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class ArchiveController {
+
+    private final ArchiveService archiveService;
+
+    @GetMapping
+    public Map<String, Object> status() {
+        return archiveService.status();
+    }
+
+    @PostMapping("/run")
+    public Map<String, Object> run() {
+        return archiveService.archive();
+    }
+}
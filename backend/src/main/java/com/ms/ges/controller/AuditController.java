@@ -0,0 +1,52 @@
+package com.ms.ges.controller;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.model.StockAuditEvent;
+import com.ms.ges.repository.QuerySpecifications;
+import com.ms.ges.repository.StockAuditEventRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/audit")
+@PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+@RequiredArgsConstructor
+public class AuditController {
+
+    private final StockAuditEventRepository stockAuditEventRepository;
+
+    /**
+     * Newest first. Events reach the table asynchronously, so the last few milliseconds of
+     * changes may not be visible yet.
+     */
+    @GetMapping("/stock")
+    public List<StockAuditEvent> stockEvents(
+            @RequestParam(required = false) Long stockItemId,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new BadRequestException("limit must be between 1 and 1000");
+        }
+        Specification<StockAuditEvent> spec = Specification.allOf(
+                QuerySpecifications.equalTo("stockItemId", stockItemId),
+                QuerySpecifications.equalTo("username", username),
+                QuerySpecifications.inRange("occurredAt", from, to));
+        return stockAuditEventRepository.findBy(spec, query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "occurredAt", "id"))
+                .limit(limit)
+                .all());
+    }
+}
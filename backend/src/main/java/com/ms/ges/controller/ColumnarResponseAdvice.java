@@ -0,0 +1,97 @@
+package com.ms.ges.controller;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * With {@code ?layout=columnar}, every array of objects in a JSON or CBOR response is sent as
+ * {@code {"columns": [...], "rows": [[...], ...]}}, so field names go over the wire once per
+ * array instead of once per element. Rows hold the values in column order, with null for a field
+ * an element does not have. This applies at every depth, e.g. to the items of each purchase too.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class ColumnarResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String LAYOUT_PARAM = "layout";
+    public static final String COLUMNAR = "columnar";
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType contentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> converterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        if (body == null || !(request instanceof ServletServerHttpRequest servletRequest)
+                || !COLUMNAR.equals(servletRequest.getServletRequest().getParameter(LAYOUT_PARAM))) {
+            return body;
+        }
+        return columnar(objectMapper.valueToTree(body));
+    }
+
+    static JsonNode columnar(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode result = JsonNodeFactory.instance.objectNode();
+            node.properties().forEach(field -> result.set(field.getKey(), columnar(field.getValue())));
+            return result;
+        }
+        if (!node.isArray() || node.isEmpty() || !allObjects(node)) {
+            return node;
+        }
+
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        for (JsonNode element : node) {
+            element.properties().forEach(field -> columns.putIfAbsent(field.getKey(), columns.size()));
+        }
+        ArrayNode rows = JsonNodeFactory.instance.arrayNode(node.size());
+        for (JsonNode element : node) {
+            JsonNode[] values = new JsonNode[columns.size()];
+            Arrays.fill(values, JsonNodeFactory.instance.nullNode());
+            for (Map.Entry<String, JsonNode> field : element.properties()) {
+                values[columns.get(field.getKey())] = columnar(field.getValue());
+            }
+            rows.addArray().addAll(Arrays.asList(values));
+        }
+
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        ArrayNode names = result.putArray("columns");
+        columns.keySet().forEach(names::add);
+        result.set("rows", rows);
+        return result;
+    }
+
+    private static boolean allObjects(JsonNode array) {
+        for (JsonNode element : array) {
+            if (!element.isObject()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
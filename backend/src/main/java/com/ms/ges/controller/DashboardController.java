@@ -0,0 +1,24 @@
+package com.ms.ges.controller;
+
+import com.ms.ges.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    @GetMapping
+    public Map<String, Object> dashboard(@RequestParam(required = false) String month) {
+        return dashboardService.dashboard(month != null ? YearMonth.parse(month) : YearMonth.now());
+    }
+}
@@ -0,0 +1,26 @@
+package com.ms.ges.controller;
+
+import java.util.Map;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.service.SqlStatementStats;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class DiagnosticsController {
+
+    private final SqlStatementStats sqlStatementStats;
+
+    @GetMapping("/sql")
+    public Map<String, Object> sqlStatements() {
+        return sqlStatementStats.snapshot();
+    }
+}
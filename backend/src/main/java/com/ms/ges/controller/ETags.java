@@ -0,0 +1,21 @@
+package com.ms.ges.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import com.ms.ges.service.EntityTags;
+
+/**
+ * Responses carrying the entity tag of the entity they return; the If-Match check on update is
+ * in {@link EntityTags}.
+ */
+public final class ETags {
+
+    static final String IF_MATCH = EntityTags.IF_MATCH;
+
+    private ETags() {
+    }
+
+    static <T> ResponseEntity<T> ok(T body, Long version) {
+        return ResponseEntity.ok().eTag(EntityTags.of(version)).body(body);
+    }
+}
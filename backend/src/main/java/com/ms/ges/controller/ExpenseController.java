@@ -3,6 +3,7 @@ package com.ms.ges.controller;
 import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -12,12 +13,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.ms.ges.exception.ResourceNotFoundException;
 import com.ms.ges.model.Expense;
-import com.ms.ges.repository.ExpenseRepository;
+import com.ms.ges.service.ExpenseService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -27,57 +29,43 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ExpenseController {
 
-    private final ExpenseRepository expenseRepository;
+    private final ExpenseService expenseService;
 
     @GetMapping
-    public List<Expense> getAllExpenses() {
-        return expenseRepository.findAll();
+    public List<Expense> getAllExpenses(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) LocalDate from,
+            @RequestParam(required = false) LocalDate to,
+            Sort sort) {
+        return expenseService.findAll(category, from, to, sort);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Expense> getExpenseById(@PathVariable @NonNull Long id) {
-        Expense expense = expenseRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
-        return ResponseEntity.ok(expense);
+        Expense expense = expenseService.findById(id);
+        return ETags.ok(expense, expense.getVersion());
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PostMapping
     public ResponseEntity<Expense> createExpense(@Valid @RequestBody Expense expense) {
-        // Set current date if not provided
-        if (expense.getDate() == null) {
-            expense.setDate(LocalDate.now());
-        }
-        
-        Expense savedExpense = expenseRepository.save(expense);
-        return ResponseEntity.ok(savedExpense);
+        return ResponseEntity.ok(expenseService.create(expense));
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PutMapping("/{id}")
-    public ResponseEntity<Expense> updateExpense(@PathVariable @NonNull Long id, @Valid @RequestBody @NonNull Expense expenseDetails) {
-        Expense expense = expenseRepository.findById(id)
-            .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
-
-        expense.setCategory(expenseDetails.getCategory());
-        expense.setAmount(expenseDetails.getAmount());
-        expense.setDescription(expenseDetails.getDescription());
-        if (expenseDetails.getDate() != null) {
-            expense.setDate(expenseDetails.getDate());
-        }
-
-        Expense updatedExpense = expenseRepository.save(expense);
-        return ResponseEntity.ok(updatedExpense);
+    public ResponseEntity<Expense> updateExpense(
+            @PathVariable @NonNull Long id,
+            @RequestHeader(value = ETags.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody @NonNull Expense expenseDetails) {
+        Expense updatedExpense = expenseService.update(id, ifMatch, expenseDetails);
+        return ETags.ok(updatedExpense, updatedExpense.getVersion());
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteExpense(@PathVariable @NonNull Long id) {
-        return expenseRepository.findById(id)
-            .map(expense -> {
-                expenseRepository.delete(expense);
-                return ResponseEntity.ok().build();
-            })
-            .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
+        expenseService.delete(id);
+        return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+}
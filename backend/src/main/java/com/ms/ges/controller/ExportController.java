@@ -0,0 +1,47 @@
+package com.ms.ges.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.service.ArchiveService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Exports that include archived rows. Unlike the list endpoints, which only see the hot tables,
+ * these read archived months back from the archive files.
+ */
+@RestController
+@RequestMapping("/api/exports")
+@PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ArchiveService archiveService;
+
+    @GetMapping("/usages")
+    public List<Map<String, Object>> exportUsages(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        validateRange(from, to);
+        return archiveService.exportUsages(from, to);
+    }
+
+    @GetMapping("/expenses")
+    public List<Map<String, Object>> exportExpenses(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        validateRange(from, to);
+        return archiveService.exportExpenses(from, to);
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+    }
+}
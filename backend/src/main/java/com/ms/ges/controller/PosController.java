@@ -0,0 +1,162 @@
+package com.ms.ges.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.User;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.service.BranchContext;
+import com.ms.ges.service.IdempotencyService;
+import com.ms.ges.service.PosIngestionService;
+import com.ms.ges.service.PosIngestionService.PosEvent;
+import com.ms.ges.service.RecipeCatalog;
+
+/**
+ * Point-of-sale event ingestion. The body is NDJSON, one sale per line:
+ * {@code {"recipeId":3,"quantity":2}} or {@code {"stockItemId":7,"quantity":0.5,"date":"2026-10-19"}}.
+ * Events are acknowledged with 202 once they are stored and are applied to stock shortly after.
+ */
+@RestController
+@RequestMapping("/api/pos")
+public class PosController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final PosIngestionService posIngestionService;
+    private final IdempotencyService idempotencyService;
+    private final RecipeCatalog recipeCatalog;
+    private final StockRepository stockRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxEventsPerRequest;
+
+    public PosController(
+            PosIngestionService posIngestionService,
+            IdempotencyService idempotencyService,
+            RecipeCatalog recipeCatalog,
+            StockRepository stockRepository,
+            ObjectMapper objectMapper,
+            @Value("${pos.max-events-per-request:5000}") int maxEventsPerRequest
+    ) {
+        this.posIngestionService = posIngestionService;
+        this.idempotencyService = idempotencyService;
+        this.recipeCatalog = recipeCatalog;
+        this.stockRepository = stockRepository;
+        this.objectMapper = objectMapper;
+        this.maxEventsPerRequest = maxEventsPerRequest;
+    }
+
+    @PostMapping(value = "/events", consumes = NDJSON)
+    public ResponseEntity<?> ingest(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            InputStream body) throws IOException {
+        List<PosEventLine> lines = read(body);
+        return idempotencyService.execute(idempotencyKey, "POST /api/pos/events", lines, () -> accept(lines));
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return posIngestionService.status();
+    }
+
+    private List<PosEventLine> read(InputStream body) throws IOException {
+        List<PosEventLine> lines = new ArrayList<>();
+        try (MappingIterator<PosEventLine> iterator = objectMapper.readerFor(PosEventLine.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (lines.size() == maxEventsPerRequest) {
+                    throw new BadRequestException("At most " + maxEventsPerRequest + " events are accepted per request");
+                }
+                lines.add(iterator.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Event " + (lines.size() + 1) + " is not valid JSON");
+        }
+        if (lines.isEmpty()) {
+            throw new BadRequestException("At least one event is required");
+        }
+        return lines;
+    }
+
+    private ResponseEntity<?> accept(List<PosEventLine> lines) {
+        validate(lines);
+
+        String branch = BranchContext.current();
+        Long userId = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User principal) {
+            userId = principal.getId();
+        }
+        LocalDate today = LocalDate.now();
+        List<PosEvent> events = new ArrayList<>(lines.size());
+        for (PosEventLine line : lines) {
+            events.add(new PosEvent(0, branch, userId, line.getRecipeId(), line.getStockItemId(), line.getQuantity(),
+                    line.getDate() != null ? line.getDate() : today));
+        }
+
+        List<PosEvent> logged = posIngestionService.accept(events);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("accepted", logged.size());
+        response.put("firstSeq", logged.get(0).seq());
+        response.put("lastSeq", logged.get(logged.size() - 1).seq());
+        response.put("queueDepth", posIngestionService.queueDepth());
+        response.put("queueCapacity", posIngestionService.queueCapacity());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    // Rejected here rather than by the consumer, which can no longer report back to the client
+    private void validate(List<PosEventLine> lines) {
+        Set<Long> stockItemIds = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            PosEventLine line = lines.get(i);
+            String event = "Event " + (i + 1);
+            if ((line.getRecipeId() == null) == (line.getStockItemId() == null)) {
+                throw new BadRequestException(event + " must have exactly one of recipeId and stockItemId");
+            }
+            if (line.getQuantity() == null || !(line.getQuantity() > 0) || line.getQuantity().isInfinite()) {
+                throw new BadRequestException(event + " must have a positive quantity");
+            }
+            if (line.getRecipeId() != null && recipeCatalog.find(line.getRecipeId()) == null) {
+                throw new BadRequestException(event + ": recipe not found with ID: " + line.getRecipeId());
+            }
+            if (line.getStockItemId() != null) {
+                stockItemIds.add(line.getStockItemId());
+            }
+        }
+        if (!stockItemIds.isEmpty()) {
+            stockRepository.findAllById(stockItemIds).stream().map(StockItem::getId).toList().forEach(stockItemIds::remove);
+            if (!stockItemIds.isEmpty()) {
+                throw new BadRequestException("Stock item not found with ID: " + stockItemIds.iterator().next());
+            }
+        }
+    }
+}
+
+@lombok.Data
+class PosEventLine {
+    private Long recipeId;
+    private Long stockItemId;
+    private Double quantity;
+    private LocalDate date;
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -13,15 +14,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ms.ges.exception.BadRequestException;
 import com.ms.ges.model.Purchase;
-import com.ms.ges.model.PurchaseItem;
-import com.ms.ges.model.StockItem;
-import com.ms.ges.repository.PurchaseRepository;
-import com.ms.ges.repository.StockRepository;
-import com.ms.ges.repository.SupplierRepository;
+import com.ms.ges.service.BusinessMetrics;
+import com.ms.ges.service.IdempotencyService;
+import com.ms.ges.service.PurchaseService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -31,100 +33,51 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class PurchaseController {
 
-    private final PurchaseRepository purchaseRepository;
-    private final StockRepository stockRepository;
-    private final SupplierRepository supplierRepository;
+    private final PurchaseService purchaseService;
+    private final IdempotencyService idempotencyService;
+    private final BusinessMetrics businessMetrics;
 
     @GetMapping
-    public List<Purchase> getAllPurchases() {
-        return purchaseRepository.findAll();
+    public List<Purchase> getAllPurchases(
+            @RequestParam(required = false) Long supplierId,
+            @RequestParam(required = false) Long stockItemId,
+            @RequestParam(required = false) LocalDate from,
+            @RequestParam(required = false) LocalDate to,
+            Sort sort) {
+        return purchaseService.findAll(supplierId, stockItemId, from, to, sort);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Purchase> getPurchaseById(@PathVariable @NonNull Long id) {
-        Optional<Purchase> purchase = purchaseRepository.findById(id);
+        Optional<Purchase> purchase = purchaseService.findById(id);
         return purchase.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PostMapping
-    public ResponseEntity<?> createPurchase(@Valid @RequestBody Purchase purchase) {
-        try {
-            // Set current date if not provided
-            if (purchase.getDate() == null) {
-                purchase.setDate(LocalDate.now());
-            }
-            
-            // Validate supplier exists
-            Long supplierId = purchase.getSupplierId();
-            if (supplierId == null || !supplierRepository.existsById(supplierId)) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("message", "Invalid or not found supplier ID: " + supplierId));
-            }
-
-            // Validate and calculate total amount
-            double totalAmount = 0.0;
-            if (purchase.getItems() == null || purchase.getItems().isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("message", "At least one item is required"));
-            }
-
-            // Process items and calculate total without duplicating them
-            for (PurchaseItem item : purchase.getItems()) {
-                // Validate stock item exists
-                Long stockItemId = item.getStockItemId();
-                if (stockItemId == null) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Stock item ID cannot be null"));
-                }
-                Optional<StockItem> stockItemOpt = stockRepository.findById(stockItemId);
-                if (stockItemOpt.isEmpty()) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Stock item not found with ID: " + stockItemId));
-                }
-
-                if (item.getQuantity() <= 0) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Item quantity must be greater than 0"));
-                }
-
-                if (item.getPrice() <= 0) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("message", "Item price must be greater than 0"));
-                }
-
-                totalAmount += item.getQuantity() * item.getPrice();
+    public ResponseEntity<?> createPurchase(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody Purchase purchase) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/purchases", purchase, () -> recordPurchase(purchase));
+    }
 
-                // Update stock quantity
-                StockItem stockItem = stockItemOpt.get();
-                stockItem.setQuantity(stockItem.getQuantity() + item.getQuantity());
-                stockRepository.save(stockItem);
-                
-                // Set the purchase reference to maintain bidirectional relationship
-                item.setPurchase(purchase);
-            }
-            
-            purchase.setTotalAmount(totalAmount);
-            Purchase savedPurchase = purchaseRepository.save(purchase);
+    private ResponseEntity<?> recordPurchase(Purchase purchase) {
+        try {
+            Purchase savedPurchase = purchaseService.record(purchase);
+            businessMetrics.purchaseRecorded();
             return ResponseEntity.ok(savedPurchase);
-        } catch (Exception e) {
-            e.printStackTrace(); // Log the actual error for debugging
+        } catch (BadRequestException e) {
             return ResponseEntity.badRequest()
-                .body(Map.of("message", "Failed to create purchase: " + e.getMessage()));
+                .body(Map.of("message", e.getMessage()));
         }
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePurchase(@PathVariable @NonNull Long id) {
-        try {
-            if (!purchaseRepository.existsById(id)) {
-                return ResponseEntity.notFound().build();
-            }
-            purchaseRepository.deleteById(id);
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+        if (purchaseService.delete(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package com.ms.ges.controller;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.model.Recipe;
+import com.ms.ges.service.RecipeCatalog;
+import com.ms.ges.service.RecipeService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/recipes")
+@RequiredArgsConstructor
+public class RecipeController {
+
+    private final RecipeService recipeService;
+    private final RecipeCatalog recipeCatalog;
+
+    @GetMapping
+    public List<Recipe> getAllRecipes() {
+        return recipeService.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Recipe> getRecipeById(@PathVariable @NonNull Long id) {
+        Recipe recipe = recipeService.findById(id);
+        return ETags.ok(recipe, recipe.getVersion());
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @PostMapping
+    public ResponseEntity<Recipe> createRecipe(@Valid @RequestBody Recipe recipe) {
+        Recipe savedRecipe = recipeService.create(recipe);
+        recipeCatalog.invalidate();
+        return ResponseEntity.ok(savedRecipe);
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @PutMapping("/{id}")
+    public ResponseEntity<Recipe> updateRecipe(
+            @PathVariable @NonNull Long id,
+            @RequestHeader(value = ETags.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody Recipe recipeDetails) {
+        Recipe updatedRecipe = recipeService.update(id, ifMatch, recipeDetails);
+        recipeCatalog.invalidate();
+        return ETags.ok(updatedRecipe, updatedRecipe.getVersion());
+    }
+
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRecipe(@PathVariable @NonNull Long id) {
+        recipeService.delete(id);
+        recipeCatalog.invalidate();
+        return ResponseEntity.ok().build();
+    }
+}
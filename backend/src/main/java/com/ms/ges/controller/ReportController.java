@@ -1,16 +1,25 @@
 package com.ms.ges.controller;
 
-import com.ms.ges.repository.PurchaseRepository;
-import com.ms.ges.repository.ExpenseRepository;
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.exception.ResourceNotFoundException;
+import com.ms.ges.model.ReportGrouping;
 import com.ms.ges.repository.StockRepository;
-import com.ms.ges.repository.UsageRepository;
+import com.ms.ges.service.ReportCache;
+import com.ms.ges.service.ReportJob;
+import com.ms.ges.service.ReportJobService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,33 +28,41 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ReportController {
 
-    private final PurchaseRepository purchaseRepository;
-    private final ExpenseRepository expenseRepository;
     private final StockRepository stockRepository;
-    private final UsageRepository usageRepository;
+    private final ReportCache reportCache;
+    private final ReportJobService reportJobService;
 
     @GetMapping("/monthly")
     public Map<String, Object> monthlyReport(@RequestParam String month) {
-        LocalDate start = LocalDate.parse(month + "-01");
-        LocalDate end = start.plusMonths(1);
-
-        double purchases = purchaseRepository.findByDateBetween(start, end)
-                .stream().mapToDouble(purchase -> purchase.getTotalAmount()).sum();
-                
-        double expenses = expenseRepository.findByDateBetween(start, end)
-                .stream().mapToDouble(expense -> expense.getAmount()).sum();
-                
-        long lowStock = stockRepository.findLowStockItems().size();
-        
-        long usageCount = usageRepository.findByDateBetween(start, end).size();
-
-        Map<String, Object> report = new HashMap<>();
+        Map<String, Object> report = new HashMap<>(reportCache.monthlySummary(YearMonth.parse(month)));
         report.put("month", month);
-        report.put("purchases", purchases);
-        report.put("expenses", expenses);
-        report.put("lowStock", lowStock);
-        report.put("usageCount", usageCount);
+        // Low stock reflects current quantities, so it is never cached
+        report.put("lowStock", stockRepository.countLowStockItems());
 
         return report;
     }
-}
\ No newline at end of file
+
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitReportJob(@Valid @RequestBody ReportJobRequest request) {
+        if (request.from().isAfter(request.to())) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        ReportGrouping grouping = request.grouping() != null ? request.grouping() : ReportGrouping.NONE;
+        ReportJob job = reportJobService.submit(request.type(), request.from(), request.to(), grouping);
+        return ResponseEntity.accepted().body(job.describe());
+    }
+
+    @GetMapping("/jobs/{id}")
+    public Map<String, Object> getReportJob(@PathVariable String id) {
+        return reportJobService.find(id)
+                .map(ReportJob::describe)
+                .orElseThrow(() -> new ResourceNotFoundException("Report job not found with id: " + id));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public Map<String, Object> cancelReportJob(@PathVariable String id) {
+        return reportJobService.cancel(id)
+                .map(ReportJob::describe)
+                .orElseThrow(() -> new ResourceNotFoundException("Report job not found with id: " + id));
+    }
+}
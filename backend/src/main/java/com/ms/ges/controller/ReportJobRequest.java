@@ -0,0 +1,19 @@
+package com.ms.ges.controller;
+
+import java.time.LocalDate;
+
+import com.ms.ges.model.ReportGrouping;
+import com.ms.ges.model.ReportType;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Body of a report job submission; {@code grouping} defaults to {@link ReportGrouping#NONE}.
+ */
+record ReportJobRequest(
+        @NotNull(message = "Report type is required") ReportType type,
+        @NotNull(message = "From date is required") LocalDate from,
+        @NotNull(message = "To date is required") LocalDate to,
+        ReportGrouping grouping
+) {
+}
@@ -0,0 +1,82 @@
+package com.ms.ges.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.model.User;
+import com.ms.ges.service.BusinessMetrics;
+import com.ms.ges.service.IdempotencyService;
+import com.ms.ges.service.ReportCache;
+import com.ms.ges.service.SaleService;
+import com.ms.ges.service.SaleService.DishSale;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/sales")
+@RequiredArgsConstructor
+public class SaleController {
+
+    private final SaleService saleService;
+    private final IdempotencyService idempotencyService;
+    private final ReportCache reportCache;
+    private final BusinessMetrics businessMetrics;
+
+    @PostMapping
+    public ResponseEntity<?> recordSales(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody SaleRequest request) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/sales", request, () -> applySales(request));
+    }
+
+    private ResponseEntity<?> applySales(SaleRequest request) {
+        LocalDate date = request.getDate() != null ? request.getDate() : LocalDate.now();
+        List<DishSale> sales = request.getSales().stream()
+                .map(line -> new DishSale(line.getRecipeId(), line.getQuantity()))
+                .toList();
+
+        User user = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User principal) {
+            user = principal;
+        }
+
+        Map<String, Object> result = saleService.recordSales(sales, date, user);
+        reportCache.evict(date);
+        businessMetrics.usagesRecorded((Integer) result.get("usagesRecorded"));
+        return ResponseEntity.ok(result);
+    }
+}
+
+@lombok.Data
+class SaleRequest {
+    private LocalDate date;
+
+    @Valid
+    @NotEmpty(message = "At least one sale is required")
+    private List<SaleLine> sales;
+}
+
+@lombok.Data
+class SaleLine {
+    @NotNull(message = "Recipe ID is required")
+    private Long recipeId;
+
+    @NotNull(message = "Quantity is required")
+    @Positive(message = "Quantity must be positive")
+    private Double quantity;
+}
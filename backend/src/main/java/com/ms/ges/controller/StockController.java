@@ -1,13 +1,19 @@
 package com.ms.ges.controller;
 
+import com.ms.ges.exception.BadRequestException;
 import com.ms.ges.model.StockItem;
-import com.ms.ges.repository.StockRepository;
+import com.ms.ges.service.InventoryValuationService;
+import com.ms.ges.service.SearchIndexService;
+import com.ms.ges.service.StockLotService;
+import com.ms.ges.service.StockService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -15,37 +21,62 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class StockController {
 
-    private final StockRepository stockRepository;
+    private final StockService stockService;
+    private final InventoryValuationService inventoryValuationService;
+    private final SearchIndexService searchIndexService;
+    private final StockLotService stockLotService;
 
     @GetMapping
-    public List<StockItem> getAllStocks() {
-        return stockRepository.findAll();
+    public List<StockItem> getAllStocks(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Boolean lowStock,
+            Sort sort) {
+        return stockService.findAll(category, lowStock, sort);
+    }
+
+    @GetMapping("/search")
+    public List<Map<String, Object>> searchStocks(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return searchIndexService.searchStockItems(q, Math.min(Math.max(limit, 1), 50));
+    }
+
+    @GetMapping("/valuation")
+    public Map<String, Object> getValuation() {
+        return inventoryValuationService.valuation();
+    }
+
+    // Lots expiring within the given number of days, and those already expired, soonest first
+    @GetMapping("/expiring")
+    public List<Map<String, Object>> getExpiring(@RequestParam(defaultValue = "3") int days) {
+        if (days < 0 || days > 365) {
+            throw new BadRequestException("days must be between 0 and 365");
+        }
+        return stockLotService.expiring(days);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<StockItem> getStockById(@PathVariable Long id) {
-        Optional<StockItem> stock = stockRepository.findById(id);
-        return stock.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        Optional<StockItem> stock = stockService.findById(id);
+        return stock.map(s -> ETags.ok(s, s.getVersion())).orElse(ResponseEntity.notFound().build());
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PostMapping
     public StockItem createStock(@RequestBody StockItem stockItem) {
-        return stockRepository.save(stockItem);
+        StockItem savedStockItem = stockService.create(stockItem);
+        searchIndexService.indexStockItem(savedStockItem);
+        return savedStockItem;
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PutMapping("/{id}")
-    public ResponseEntity<StockItem> updateStock(@PathVariable Long id, @RequestBody StockItem stockItemDetails) {
-        Optional<StockItem> optionalStock = stockRepository.findById(id);
-        if (optionalStock.isPresent()) {
-            StockItem stockItem = optionalStock.get();
-            stockItem.setName(stockItemDetails.getName());
-            stockItem.setCategory(stockItemDetails.getCategory());
-            stockItem.setQuantity(stockItemDetails.getQuantity());
-            stockItem.setUnitPrice(stockItemDetails.getUnitPrice());
-            stockItem.setReorderLevel(stockItemDetails.getReorderLevel());
-            return ResponseEntity.ok(stockRepository.save(stockItem));
+    public ResponseEntity<StockItem> updateStock(
+            @PathVariable Long id,
+            @RequestHeader(value = ETags.IF_MATCH, required = false) String ifMatch,
+            @RequestBody StockItem stockItemDetails) {
+        Optional<StockItem> updatedStockItem = stockService.update(id, ifMatch, stockItemDetails);
+        if (updatedStockItem.isPresent()) {
+            searchIndexService.indexStockItem(updatedStockItem.get());
+            return ETags.ok(updatedStockItem.get(), updatedStockItem.get().getVersion());
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -54,11 +85,11 @@ public class StockController {
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteStock(@PathVariable Long id) {
-        if (stockRepository.existsById(id)) {
-            stockRepository.deleteById(id);
+        if (stockService.delete(id)) {
+            searchIndexService.removeStockItem(id);
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+}
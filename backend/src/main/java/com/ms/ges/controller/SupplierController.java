@@ -1,6 +1,8 @@
 package com.ms.ges.controller;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.http.ResponseEntity;
@@ -11,11 +13,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.ms.ges.exception.BadRequestException;
 import com.ms.ges.model.Supplier;
-import com.ms.ges.repository.SupplierRepository;
+import com.ms.ges.service.SearchIndexService;
+import com.ms.ges.service.SupplierService;
+import com.ms.ges.service.SupplierSpendService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -24,35 +31,74 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class SupplierController {
 
-    private final SupplierRepository supplierRepository;
+    private final SupplierService supplierService;
+    private final SupplierSpendService supplierSpendService;
+    private final SearchIndexService searchIndexService;
 
     @GetMapping
     public List<Supplier> getAllSuppliers() {
-        return supplierRepository.findAll();
+        return supplierService.findAll();
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Supplier> getSupplierById(@PathVariable Long id) {
-        Optional<Supplier> supplier = supplierRepository.findById(id);
-        return supplier.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+        Optional<Supplier> supplier = supplierService.findById(id);
+        return supplier.map(s -> ETags.ok(s, s.getVersion())).orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/search")
+    public List<Map<String, Object>> searchSuppliers(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return searchIndexService.searchSuppliers(q, Math.min(Math.max(limit, 1), 50));
+    }
+
+    @GetMapping("/{id}/spend")
+    public Map<String, Object> getSupplierSpend(
+            @PathVariable Long id,
+            @RequestParam(required = false) LocalDate from,
+            @RequestParam(required = false) LocalDate to,
+            @RequestParam(defaultValue = "5") int top) {
+        validateRange(from, to);
+        Supplier supplier = supplierService.getById(id);
+        return supplierSpendService.spendForSupplier(supplier, from, to, Math.max(top, 0));
+    }
+
+    @GetMapping("/ranking")
+    public List<Map<String, Object>> getSupplierRanking(
+            @RequestParam(required = false) LocalDate from,
+            @RequestParam(required = false) LocalDate to,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "5") int top) {
+        validateRange(from, to);
+        if (limit < 1 || limit > 100) {
+            throw new BadRequestException("limit must be between 1 and 100");
+        }
+        return supplierSpendService.ranking(from, to, limit, Math.max(top, 0));
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PostMapping
     public Supplier createSupplier(@RequestBody Supplier supplier) {
-        return supplierRepository.save(supplier);
+        Supplier savedSupplier = supplierService.create(supplier);
+        searchIndexService.indexSupplier(savedSupplier);
+        return savedSupplier;
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @PutMapping("/{id}")
-    public ResponseEntity<Supplier> updateSupplier(@PathVariable Long id, @RequestBody Supplier supplierDetails) {
-        Optional<Supplier> optionalSupplier = supplierRepository.findById(id);
-        if (optionalSupplier.isPresent()) {
-            Supplier supplier = optionalSupplier.get();
-            supplier.setName(supplierDetails.getName());
-            supplier.setPhone(supplierDetails.getPhone());
-            supplier.setEmail(supplierDetails.getEmail());
-            return ResponseEntity.ok(supplierRepository.save(supplier));
+    public ResponseEntity<Supplier> updateSupplier(
+            @PathVariable Long id,
+            @RequestHeader(value = ETags.IF_MATCH, required = false) String ifMatch,
+            @RequestBody Supplier supplierDetails) {
+        Optional<Supplier> updatedSupplier = supplierService.update(id, ifMatch, supplierDetails);
+        if (updatedSupplier.isPresent()) {
+            searchIndexService.indexSupplier(updatedSupplier.get());
+            return ETags.ok(updatedSupplier.get(), updatedSupplier.get().getVersion());
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -61,8 +107,8 @@ public class SupplierController {
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteSupplier(@PathVariable Long id) {
-        if (supplierRepository.existsById(id)) {
-            supplierRepository.deleteById(id);
+        if (supplierService.delete(id)) {
+            searchIndexService.removeSupplier(id);
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -0,0 +1,36 @@
+package com.ms.ges.controller;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.service.ReplicaContext;
+import com.ms.ges.service.SyncService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @GetMapping
+    public Map<String, Object> sync(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative");
+        }
+        if (limit < 1 || limit > 5000) {
+            throw new BadRequestException("limit must be between 1 and 5000");
+        }
+        // The cursor is the primary's high-water mark, which a lagging replica may not have reached
+        return ReplicaContext.onPrimary(() -> syncService.changesSince(since, limit));
+    }
+}
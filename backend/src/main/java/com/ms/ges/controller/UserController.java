@@ -12,12 +12,14 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ms.ges.model.Role;
 import com.ms.ges.model.User;
 import com.ms.ges.repository.UserRepository;
+import com.ms.ges.service.EntityTags;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -70,9 +72,13 @@ public class UserController {
     }
 
     @PatchMapping("/{id}/role")
-    public ResponseEntity<?> updateUserRole(@PathVariable Long id, @RequestBody RoleUpdateRequest request) {
+    public ResponseEntity<?> updateUserRole(
+            @PathVariable Long id,
+            @RequestHeader(value = ETags.IF_MATCH, required = false) String ifMatch,
+            @RequestBody RoleUpdateRequest request) {
         return userRepository.findById(id)
                 .map(user -> {
+                    EntityTags.check(ifMatch, user.getVersion());
                     // Prevent removing the last admin
                     if (user.getRole() == Role.ADMIN 
                         && request.getRole() != Role.ADMIN 
@@ -82,7 +88,8 @@ public class UserController {
                     }
 
                     user.setRole(request.getRole());
-                    return ResponseEntity.ok(userRepository.save(user));
+                    User updatedUser = userRepository.save(user);
+                    return ETags.ok(updatedUser, updatedUser.getVersion());
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
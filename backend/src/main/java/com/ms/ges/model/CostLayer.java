@@ -0,0 +1,40 @@
+package com.ms.ges.model;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "cost_layers", indexes = {
+    @Index(name = "idx_cost_layers_item_received", columnList = "stock_item_id, received_date, id")
+})
+public class CostLayer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    private Long stockItemId;
+
+    private LocalDate receivedDate;
+
+    private Double originalQuantity;
+
+    private Double remainingQuantity;
+
+    private Double unitCost;
+}
@@ -1,30 +1,62 @@
 package com.ms.ges.model;
 
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
+import com.ms.ges.service.ChangeTrackingListener;
+
 import java.time.LocalDate;
 
 @Data
 @Entity
-@Table(name = "expenses")
-public class Expense {
+@Table(name = "expenses", indexes = {
+    @Index(name = "idx_expenses_date", columnList = "date"),
+    @Index(name = "idx_expenses_category_date", columnList = "category, date"),
+    @Index(name = "idx_expenses_change_seq", columnList = "change_seq")
+})
+@EntityListeners(ChangeTrackingListener.class)
+public class Expense implements SyncTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @JsonIgnore
+    private Long changeSeq;
     
     @NotBlank(message = "Category is required")
     private String category;
     
-    @NotNull(message = "Amount is required")
-    @Positive(message = "Amount must be positive")
-    private Double amount;
+    @JsonIgnore
+    private Long amountCents;
     
     private LocalDate date;
     
     @NotBlank(message = "Description is required")
     private String description;
+
+    @NotNull(message = "Amount is required")
+    @Positive(message = "Amount must be positive")
+    public Double getAmount() {
+        return FixedPoint.fromCents(amountCents);
+    }
+
+    public void setAmount(Double amount) {
+        this.amountCents = FixedPoint.toCents(amount);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.ms.ges.model;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * Daily expense totals per category for rows that have been moved to the archive.
+ */
+@Data
+@Entity
+@Table(name = "expense_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_expense_rollups_branch_date_category", columnNames = {"branch", "date", "category"})
+})
+public class ExpenseRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    private LocalDate date;
+
+    private String category;
+
+    private Long amountCents;
+
+    private Long expenseCount;
+}
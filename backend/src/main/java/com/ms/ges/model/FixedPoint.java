@@ -0,0 +1,76 @@
+package com.ms.ges.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Quantities and money are stored as scaled integers: quantities in thousandths of a unit and
+ * money in cents. Sums of stored values are exact. Rounding (half up) happens only where a
+ * decimal from a client is converted and where a quantity is multiplied by a price. The API
+ * keeps speaking decimals; entities convert at their JSON getters and setters.
+ */
+public final class FixedPoint {
+
+    public static final int QUANTITY_SCALE = 1000;
+    public static final int MONEY_SCALE = 100;
+
+    private FixedPoint() {
+    }
+
+    public static long toMilli(double quantity) {
+        return scale(quantity, 3);
+    }
+
+    public static Long toMilli(Double quantity) {
+        return quantity != null ? toMilli(quantity.doubleValue()) : null;
+    }
+
+    public static double fromMilli(long quantityMilli) {
+        return (double) quantityMilli / QUANTITY_SCALE;
+    }
+
+    public static Double fromMilli(Long quantityMilli) {
+        return quantityMilli != null ? fromMilli(quantityMilli.longValue()) : null;
+    }
+
+    public static long toCents(double amount) {
+        return scale(amount, 2);
+    }
+
+    public static Long toCents(Double amount) {
+        return amount != null ? toCents(amount.doubleValue()) : null;
+    }
+
+    public static double fromCents(long amountCents) {
+        return (double) amountCents / MONEY_SCALE;
+    }
+
+    public static Double fromCents(Long amountCents) {
+        return amountCents != null ? fromCents(amountCents.longValue()) : null;
+    }
+
+    /**
+     * The price of {@code quantityMilli} at {@code unitPriceCents} per unit, in cents.
+     */
+    public static long amountCents(long quantityMilli, long unitPriceCents) {
+        return milliCentsToCents(Math.multiplyExact(quantityMilli, unitPriceCents));
+    }
+
+    /**
+     * Rounds a sum of quantity-times-price products (thousandths of a cent) to cents.
+     */
+    public static long milliCentsToCents(long milliCents) {
+        long half = QUANTITY_SCALE / 2;
+        return milliCents >= 0
+                ? (milliCents + half) / QUANTITY_SCALE
+                : -((-milliCents + half) / QUANTITY_SCALE);
+    }
+
+    // Through the shortest decimal form of the double, so 0.1 becomes exactly 100 thousandths
+    private static long scale(double value, int digits) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Not a finite number: " + value);
+        }
+        return BigDecimal.valueOf(value).movePointRight(digits).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
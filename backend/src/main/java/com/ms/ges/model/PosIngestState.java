@@ -0,0 +1,34 @@
+package com.ms.ges.model;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * One row per branch.
+ */
+@Data
+@Entity
+@Table(name = "pos_ingest_state", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_pos_ingest_state_branch", columnNames = {"branch"})
+})
+public class PosIngestState {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    // Highest ingest log seq applied to stock; replay skips events at or below it
+    private Long appliedThroughSeq = 0L;
+}
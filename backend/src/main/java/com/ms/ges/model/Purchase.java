@@ -4,25 +4,45 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
+import com.ms.ges.service.ChangeTrackingListener;
+
 @Data
 @Entity
-@Table(name = "purchases")
-public class Purchase {
+@Table(name = "purchases", indexes = {
+    @Index(name = "idx_purchases_supplier_date", columnList = "supplier_id, date"),
+    @Index(name = "idx_purchases_date", columnList = "date"),
+    @Index(name = "idx_purchases_change_seq", columnList = "change_seq")
+})
+@EntityListeners(ChangeTrackingListener.class)
+public class Purchase implements SyncTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @JsonIgnore
+    private Long changeSeq;
     
     @NotNull(message = "Supplier ID is required")
     private Long supplierId;
@@ -30,12 +50,21 @@ public class Purchase {
     @NotNull(message = "Date is required")
     private LocalDate date;
     
-    private Double totalAmount;
+    @JsonIgnore
+    private Long totalAmountCents;
     
     @NotEmpty(message = "At least one item is required")
     @OneToMany(mappedBy = "purchase", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<PurchaseItem> items = new ArrayList<>();
     
+    public Double getTotalAmount() {
+        return FixedPoint.fromCents(totalAmountCents);
+    }
+
+    public void setTotalAmount(Double totalAmount) {
+        this.totalAmountCents = FixedPoint.toCents(totalAmount);
+    }
+
     public void addItem(PurchaseItem item) {
         items.add(item);
         item.setPurchase(this);
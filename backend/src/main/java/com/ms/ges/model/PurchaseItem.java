@@ -1,5 +1,9 @@
 package com.ms.ges.model;
 
+import java.time.LocalDate;
+
+import org.hibernate.annotations.TenantId;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Entity;
@@ -7,6 +11,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -14,11 +19,18 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "purchase_items")
+@Table(name = "purchase_items", indexes = {
+    @Index(name = "idx_purchase_items_purchase", columnList = "purchase_id"),
+    @Index(name = "idx_purchase_items_stock_item", columnList = "stock_item_id")
+})
 public class PurchaseItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "purchase_id")
@@ -26,8 +38,29 @@ public class PurchaseItem {
     private Purchase purchase;
     
     private Long stockItemId;
+
+    // Optional; the lot received with this item expires on it
+    private LocalDate expiryDate;
     
-    private Double quantity;
-    
-    private Double price;
+    @JsonIgnore
+    private Long quantityMilli;
+
+    @JsonIgnore
+    private Long priceCents;
+
+    public Double getQuantity() {
+        return FixedPoint.fromMilli(quantityMilli);
+    }
+
+    public void setQuantity(Double quantity) {
+        this.quantityMilli = FixedPoint.toMilli(quantity);
+    }
+
+    public Double getPrice() {
+        return FixedPoint.fromCents(priceCents);
+    }
+
+    public void setPrice(Double price) {
+        this.priceCents = FixedPoint.toCents(price);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.ms.ges.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+/**
+ * A menu item and the stock it consumes per portion sold.
+ */
+@Data
+@Entity
+@Table(name = "recipes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_recipes_branch_name", columnNames = {"branch", "name"})
+})
+public class Recipe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @NotBlank(message = "Name is required")
+    private String name;
+
+    // Owned by the recipe, so changing only the ingredients still moves the version
+    @Valid
+    @NotEmpty(message = "At least one ingredient is required")
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @JoinColumn(name = "recipe_id", nullable = false)
+    private List<RecipeIngredient> ingredients = new ArrayList<>();
+}
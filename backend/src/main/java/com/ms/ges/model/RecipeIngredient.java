@@ -0,0 +1,39 @@
+package com.ms.ges.model;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "recipe_ingredients", indexes = {
+    @Index(name = "idx_recipe_ingredients_recipe", columnList = "recipe_id"),
+    @Index(name = "idx_recipe_ingredients_stock_item", columnList = "stock_item_id")
+})
+public class RecipeIngredient {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @NotNull(message = "Stock item ID is required")
+    private Long stockItemId;
+
+    // Stock consumed per portion, in the stock item's unit
+    @NotNull(message = "Quantity is required")
+    @Positive(message = "Quantity must be positive")
+    private Double quantity;
+}
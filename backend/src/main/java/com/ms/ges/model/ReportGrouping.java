@@ -0,0 +1,6 @@
+package com.ms.ges.model;
+
+public enum ReportGrouping {
+    NONE,
+    MONTH
+}
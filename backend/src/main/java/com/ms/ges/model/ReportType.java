@@ -0,0 +1,6 @@
+package com.ms.ges.model;
+
+public enum ReportType {
+    SUMMARY,
+    USAGE
+}
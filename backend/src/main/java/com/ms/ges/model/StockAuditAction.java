@@ -0,0 +1,11 @@
+package com.ms.ges.model;
+
+public enum StockAuditAction {
+    CREATE,
+    USAGE,
+    USAGE_UPDATE,
+    USAGE_DELETE,
+    PURCHASE,
+    MANUAL_EDIT,
+    DELETE
+}
@@ -0,0 +1,52 @@
+package com.ms.ges.model;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * One change to a stock item's quantity. Rows are only ever inserted.
+ */
+@Data
+@Entity
+@Table(name = "stock_audit_events", indexes = {
+    @Index(name = "idx_stock_audit_item_time", columnList = "stock_item_id, occurred_at"),
+    @Index(name = "idx_stock_audit_user_time", columnList = "username, occurred_at"),
+    @Index(name = "idx_stock_audit_time", columnList = "occurred_at")
+})
+public class StockAuditEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    private Long stockItemId;
+
+    @Enumerated(EnumType.STRING)
+    private StockAuditAction action;
+
+    private Double quantityBefore;
+
+    private Double quantityAfter;
+
+    private String username;
+
+    private Long referenceId;
+
+    private Instant occurredAt;
+}
@@ -1,5 +1,10 @@
 package com.ms.ges.model;
 
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -7,13 +12,31 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 
+import com.ms.ges.service.ChangeTrackingListener;
+
 @Data
 @Entity
-@Table(name = "stock_items")
-public class StockItem {
+@Table(name = "stock_items", indexes = {
+    @Index(name = "idx_stock_items_category", columnList = "category"),
+    @Index(name = "idx_stock_items_name", columnList = "name"),
+    @Index(name = "idx_stock_items_change_seq", columnList = "change_seq")
+})
+@EntityListeners(ChangeTrackingListener.class)
+public class StockItem implements SyncTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @JsonIgnore
+    private Long changeSeq;
     
     @NotBlank(message = "Name is required")
     private String name;
@@ -21,15 +44,42 @@ public class StockItem {
     @NotBlank(message = "Category is required")
     private String category;
     
+    @JsonIgnore
+    private Long quantityMilli;
+
+    @JsonIgnore
+    private Long unitPriceCents;
+
+    @JsonIgnore
+    private Long reorderLevelMilli;
+
     @NotNull(message = "Quantity is required")
     @PositiveOrZero(message = "Quantity must be positive or zero")
-    private Double quantity;
-    
+    public Double getQuantity() {
+        return FixedPoint.fromMilli(quantityMilli);
+    }
+
+    public void setQuantity(Double quantity) {
+        this.quantityMilli = FixedPoint.toMilli(quantity);
+    }
+
     @NotNull(message = "Unit price is required")
     @Positive(message = "Unit price must be positive")
-    private Double unitPrice;
-    
+    public Double getUnitPrice() {
+        return FixedPoint.fromCents(unitPriceCents);
+    }
+
+    public void setUnitPrice(Double unitPrice) {
+        this.unitPriceCents = FixedPoint.toCents(unitPrice);
+    }
+
     @NotNull(message = "Reorder level is required")
     @PositiveOrZero(message = "Reorder level must be positive or zero")
-    private Double reorderLevel;
+    public Double getReorderLevel() {
+        return FixedPoint.fromMilli(reorderLevelMilli);
+    }
+
+    public void setReorderLevel(Double reorderLevel) {
+        this.reorderLevelMilli = FixedPoint.toMilli(reorderLevel);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.ms.ges.model;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * A received batch of one stock item. Usage draws from the lots that expire first; a lot
+ * without an expiry date is drawn last.
+ */
+@Data
+@Entity
+@Table(name = "stock_lots", indexes = {
+    @Index(name = "idx_stock_lots_expiry", columnList = "expiry_date"),
+    @Index(name = "idx_stock_lots_item", columnList = "stock_item_id")
+})
+public class StockLot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    private Long stockItemId;
+
+    private Long purchaseId;
+
+    private LocalDate receivedDate;
+
+    private LocalDate expiryDate;
+
+    @JsonIgnore
+    private Long originalQuantityMilli;
+
+    @JsonIgnore
+    private Long remainingQuantityMilli;
+
+    public Double getOriginalQuantity() {
+        return FixedPoint.fromMilli(originalQuantityMilli);
+    }
+
+    public Double getRemainingQuantity() {
+        return FixedPoint.fromMilli(remainingQuantityMilli);
+    }
+}
@@ -0,0 +1,30 @@
+package com.ms.ges.model;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "stock_valuations")
+public class StockValuation {
+    @Id
+    private Long stockItemId;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    private Double quantity;
+
+    // Moving weighted-average unit cost
+    private Double averageCost;
+
+    // Sum of remainingQuantity * unitCost over the item's open cost layers
+    private Double fifoValue;
+}
@@ -0,0 +1,19 @@
+package com.ms.ges.model;
+
+public enum SyncEntity {
+    STOCK_ITEM("stockItems"),
+    SUPPLIER("suppliers"),
+    USAGE("usages"),
+    PURCHASE("purchases"),
+    EXPENSE("expenses");
+
+    private final String key;
+
+    SyncEntity(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
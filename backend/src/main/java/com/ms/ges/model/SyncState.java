@@ -0,0 +1,34 @@
+package com.ms.ges.model;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * One row per branch.
+ */
+@Data
+@Entity
+@Table(name = "sync_state", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_sync_state_branch", columnNames = {"branch"})
+})
+public class SyncState {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    // Highest tombstone seq removed by pruning; cursors at or below it must do a full reload
+    private Long prunedThroughSeq = 0L;
+}
@@ -0,0 +1,11 @@
+package com.ms.ges.model;
+
+/**
+ * Entities whose inserts and updates are stamped with a value from the global change sequence
+ * so that {@code GET /api/sync} can return everything changed after a client's cursor.
+ */
+public interface SyncTracked {
+    Long getChangeSeq();
+
+    void setChangeSeq(Long changeSeq);
+}
@@ -0,0 +1,37 @@
+package com.ms.ges.model;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "sync_tombstones", indexes = {
+    @Index(name = "idx_sync_tombstones_deleted_at", columnList = "deleted_at")
+})
+public class Tombstone {
+    // Taken from the change sequence, so it orders deletes with inserts and updates
+    @Id
+    private Long seq;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @Enumerated(EnumType.STRING)
+    private SyncEntity entityType;
+
+    private Long entityId;
+
+    private Instant deletedAt;
+}
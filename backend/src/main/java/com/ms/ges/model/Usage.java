@@ -2,30 +2,57 @@ package com.ms.ges.model;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 
+import com.ms.ges.service.ChangeTrackingListener;
+
 @Data
 @Entity
-@Table(name = "usages")
+@Table(name = "usages", indexes = {
+    @Index(name = "idx_usages_date", columnList = "date"),
+    @Index(name = "idx_usages_stock_item_date", columnList = "stock_item_id, date"),
+    @Index(name = "idx_usages_user_date", columnList = "user_id, date"),
+    @Index(name = "idx_usages_change_seq", columnList = "change_seq")
+})
+@EntityListeners(ChangeTrackingListener.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
-public class Usage {
+public class Usage implements SyncTracked {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @JsonIgnore
+    private Long changeSeq;
     
     private Long stockItemId;
     
-    private Double quantityUsed;
+    @JsonIgnore
+    private Long quantityUsedMilli;
     
     private LocalDate date;
     
@@ -33,4 +60,12 @@ public class Usage {
     @JoinColumn(name = "user_id")
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "password"})
     private User user;
+
+    public Double getQuantityUsed() {
+        return FixedPoint.fromMilli(quantityUsedMilli);
+    }
+
+    public void setQuantityUsed(Double quantityUsed) {
+        this.quantityUsedMilli = FixedPoint.toMilli(quantityUsed);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.ms.ges.model;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.TenantId;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+
+/**
+ * Daily usage totals per stock item for rows that have been moved to the archive.
+ */
+@Data
+@Entity
+@Table(name = "usage_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_usage_rollups_date_item", columnNames = {"date", "stock_item_id"})
+})
+public class UsageRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @TenantId
+    private String branch;
+
+    private LocalDate date;
+
+    private Long stockItemId;
+
+    private Long quantityUsedMilli;
+
+    private Long usageCount;
+}
@@ -0,0 +1,20 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.CostLayer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CostLayerRepository extends JpaRepository<CostLayer, Long> {
+    @Query("SELECT l FROM CostLayer l WHERE l.stockItemId = :stockItemId AND l.remainingQuantity > 0 " +
+           "ORDER BY l.receivedDate ASC, l.id ASC")
+    List<CostLayer> findOpenLayers(Long stockItemId);
+
+    @Modifying
+    @Query("DELETE FROM CostLayer l WHERE l.stockItemId = :stockItemId")
+    void deleteByStockItemId(Long stockItemId);
+}
@@ -1,7 +1,9 @@
 package com.ms.ges.repository;
 
 import com.ms.ges.model.Expense;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -9,7 +11,18 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpecificationExecutor<Expense> {
     @Query("SELECT e FROM Expense e WHERE e.date BETWEEN :startDate AND :endDate")
     List<Expense> findByDateBetween(LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+
+    // Expenses and the rollups of archived ones in one statement, so an archive batch committing
+    // in between cannot count a row twice or not at all
+    @Query("SELECT COALESCE(SUM(t.amountCents), 0) FROM (" +
+           "SELECT e.amountCents AS amountCents FROM Expense e WHERE e.date >= :startDate AND e.date < :endDate " +
+           "UNION ALL " +
+           "SELECT r.amountCents AS amountCents FROM ExpenseRollup r WHERE r.date >= :startDate AND r.date < :endDate) t")
+    long sumAmountCentsWithRollupsInRange(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT e FROM Expense e WHERE e.date < :cutoff ORDER BY e.id")
+    List<Expense> findOlderThan(LocalDate cutoff, Pageable pageable);
+}
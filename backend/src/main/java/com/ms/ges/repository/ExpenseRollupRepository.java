@@ -0,0 +1,13 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.ExpenseRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface ExpenseRollupRepository extends JpaRepository<ExpenseRollup, Long> {
+    Optional<ExpenseRollup> findByDateAndCategory(LocalDate date, String category);
+}
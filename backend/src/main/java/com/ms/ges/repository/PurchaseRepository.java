@@ -1,15 +1,52 @@
 package com.ms.ges.repository;
 
 import com.ms.ges.model.Purchase;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
+public interface PurchaseRepository extends JpaRepository<Purchase, Long>, JpaSpecificationExecutor<Purchase> {
     @Query("SELECT p FROM Purchase p WHERE p.date BETWEEN :startDate AND :endDate")
     List<Purchase> findByDateBetween(LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+
+    @Query("SELECT COALESCE(SUM(p.totalAmountCents), 0) FROM Purchase p WHERE p.date >= :startDate AND p.date < :endDate")
+    long sumTotalAmountCentsInRange(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT p.supplierId AS supplierId, COUNT(p) AS purchaseCount, COALESCE(SUM(p.totalAmountCents), 0) AS totalSpendCents " +
+           "FROM Purchase p WHERE p.supplierId = :supplierId AND p.date >= :startDate AND p.date < :endDate " +
+           "GROUP BY p.supplierId")
+    List<SupplierSpend> sumSpendForSupplier(Long supplierId, LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT p.supplierId AS supplierId, COUNT(p) AS purchaseCount, COALESCE(SUM(p.totalAmountCents), 0) AS totalSpendCents " +
+           "FROM Purchase p WHERE p.date >= :startDate AND p.date < :endDate " +
+           "GROUP BY p.supplierId ORDER BY COALESCE(SUM(p.totalAmountCents), 0) DESC")
+    List<SupplierSpend> rankSuppliersBySpend(LocalDate startDate, LocalDate endDate, Pageable pageable);
+
+    // Spend is summed in thousandths of a cent (quantity thousandths times price cents) and rounded once
+    @Query("SELECT p.supplierId AS supplierId, i.stockItemId AS stockItemId, SUM(i.quantityMilli) AS quantityMilli, " +
+           "SUM(i.quantityMilli * i.priceCents) AS spendMilliCents " +
+           "FROM PurchaseItem i JOIN i.purchase p " +
+           "WHERE p.supplierId IN :supplierIds AND p.date >= :startDate AND p.date < :endDate " +
+           "GROUP BY p.supplierId, i.stockItemId ORDER BY p.supplierId, SUM(i.quantityMilli * i.priceCents) DESC")
+    List<SupplierItemSpend> sumItemSpendForSuppliers(Collection<Long> supplierIds, LocalDate startDate, LocalDate endDate);
+
+    interface SupplierSpend {
+        Long getSupplierId();
+        Long getPurchaseCount();
+        Long getTotalSpendCents();
+    }
+
+    interface SupplierItemSpend {
+        Long getSupplierId();
+        Long getStockItemId();
+        Long getQuantityMilli();
+        Long getSpendMilliCents();
+    }
+}
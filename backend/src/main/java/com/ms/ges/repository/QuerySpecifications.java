@@ -0,0 +1,76 @@
+package com.ms.ges.repository;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.ms.ges.exception.BadRequestException;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Building blocks for the list endpoints' query parameters. A null argument yields a null
+ * specification, which {@link Specification#and} treats as "no restriction".
+ */
+public final class QuerySpecifications {
+
+    private QuerySpecifications() {
+    }
+
+    public static <T> Specification<T> equalTo(String field, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(path(root, field), value);
+    }
+
+    public static <T> Specification<T> dateInRange(String field, LocalDate from, LocalDate to) {
+        return inRange(field, from, to);
+    }
+
+    /**
+     * Matches values in [from, to]; either bound may be null.
+     */
+    public static <T, C extends Comparable<? super C>> Specification<T> inRange(String field, C from, C to) {
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        Specification<T> lower = from == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<C>get(field), from);
+        Specification<T> upper = to == null ? null
+                : (root, query, cb) -> cb.lessThanOrEqualTo(root.<C>get(field), to);
+        if (lower == null || upper == null) {
+            return lower != null ? lower : upper;
+        }
+        return lower.and(upper);
+    }
+
+    private static Path<?> path(Root<?> root, String field) {
+        Path<?> path = root;
+        for (String part : field.split("\\.")) {
+            path = path.get(part);
+        }
+        return path;
+    }
+
+    /**
+     * Rejects sort properties outside {@code allowed}, which should only list indexed columns so
+     * that a client cannot ask for a full-table sort.
+     */
+    public static Sort validateSort(Sort sort, Set<String> allowed) {
+        if (sort == null) {
+            return Sort.unsorted();
+        }
+        for (Sort.Order order : sort) {
+            if (!allowed.contains(order.getProperty())) {
+                throw new BadRequestException("Unsupported sort field '" + order.getProperty()
+                        + "'. Allowed: " + String.join(", ", new TreeSet<>(allowed)));
+            }
+        }
+        return sort;
+    }
+}
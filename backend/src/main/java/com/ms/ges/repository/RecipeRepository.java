@@ -0,0 +1,16 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.Recipe;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RecipeRepository extends JpaRepository<Recipe, Long> {
+    boolean existsByName(String name);
+
+    @Query("SELECT DISTINCT r FROM Recipe r LEFT JOIN FETCH r.ingredients ORDER BY r.id")
+    List<Recipe> findAllWithIngredients();
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.StockAuditEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockAuditEventRepository extends JpaRepository<StockAuditEvent, Long>, JpaSpecificationExecutor<StockAuditEvent> {
+}
@@ -0,0 +1,22 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.StockLot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface StockLotRepository extends JpaRepository<StockLot, Long> {
+    // Range scan on idx_stock_lots_expiry; lots without an expiry date are not in the range
+    @Query("SELECT l FROM StockLot l WHERE l.expiryDate <= :until AND l.remainingQuantityMilli > 0 "
+            + "ORDER BY l.expiryDate ASC, l.id ASC")
+    List<StockLot> findExpiringBy(LocalDate until);
+
+    @Modifying
+    @Query("DELETE FROM StockLot l WHERE l.stockItemId = :stockItemId")
+    void deleteByStockItemId(Long stockItemId);
+}
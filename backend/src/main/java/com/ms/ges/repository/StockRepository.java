@@ -2,13 +2,27 @@ package com.ms.ges.repository;
 
 import com.ms.ges.model.StockItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface StockRepository extends JpaRepository<StockItem, Long> {
-    @Query("SELECT s FROM StockItem s WHERE s.quantity <= s.reorderLevel")
+public interface StockRepository extends JpaRepository<StockItem, Long>, JpaSpecificationExecutor<StockItem> {
+    @Query("SELECT s FROM StockItem s WHERE s.quantityMilli <= s.reorderLevelMilli")
     List<StockItem> findLowStockItems();
+
+    @Query("SELECT COUNT(s) FROM StockItem s WHERE s.quantityMilli <= s.reorderLevelMilli")
+    long countLowStockItems();
+
+    // Relative and guarded, so concurrent movements on one item neither lose updates nor go negative
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StockItem s SET s.quantityMilli = s.quantityMilli + :deltaMilli, s.version = s.version + 1, s.changeSeq = :changeSeq "
+            + "WHERE s.id = :id AND s.quantityMilli + :deltaMilli >= 0")
+    int adjustQuantity(Long id, long deltaMilli, Long changeSeq);
+
+    @Query("SELECT s.quantityMilli FROM StockItem s WHERE s.id = :id")
+    Long findQuantityMilliById(Long id);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.StockValuation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockValuationRepository extends JpaRepository<StockValuation, Long> {
+}
@@ -0,0 +1,13 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.SyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SyncStateRepository extends JpaRepository<SyncState, Long> {
+    // Filtered to the current branch, which has at most one row
+    Optional<SyncState> findFirstByOrderByIdAsc();
+}
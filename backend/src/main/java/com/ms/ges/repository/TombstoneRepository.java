@@ -0,0 +1,23 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.Tombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    @Query("SELECT t FROM Tombstone t WHERE t.seq > :since AND t.seq <= :upTo ORDER BY t.seq")
+    List<Tombstone> findInRange(Long since, Long upTo);
+
+    @Query("SELECT MAX(t.seq) FROM Tombstone t WHERE t.deletedAt < :cutoff")
+    Long findMaxSeqDeletedBefore(Instant cutoff);
+
+    @Modifying
+    @Query("DELETE FROM Tombstone t WHERE t.seq <= :seq")
+    int deleteThroughSeq(Long seq);
+}
@@ -1,7 +1,9 @@
 package com.ms.ges.repository;
 
 import com.ms.ges.model.Usage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -9,7 +11,37 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface UsageRepository extends JpaRepository<Usage, Long> {
+public interface UsageRepository extends JpaRepository<Usage, Long>, JpaSpecificationExecutor<Usage> {
     @Query("SELECT u FROM Usage u WHERE u.date BETWEEN :startDate AND :endDate")
     List<Usage> findByDateBetween(LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+
+    // Usages and the rollups of archived ones in one statement, so an archive batch committing
+    // in between cannot count a row twice or not at all
+    @Query("SELECT COALESCE(SUM(t.usageCount), 0) FROM (" +
+           "SELECT COUNT(u) AS usageCount FROM Usage u WHERE u.date >= :startDate AND u.date < :endDate " +
+           "UNION ALL " +
+           "SELECT SUM(r.usageCount) AS usageCount FROM UsageRollup r WHERE r.date >= :startDate AND r.date < :endDate) t")
+    long countWithRollupsInRange(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT u.stockItemId AS stockItemId, SUM(u.quantityUsedMilli) AS quantityUsedMilli, COUNT(u) AS usageCount " +
+           "FROM Usage u WHERE u.date >= :startDate AND u.date < :endDate GROUP BY u.stockItemId")
+    List<StockItemUsageTotal> sumQuantityByStockItemInRange(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT t.stockItemId AS stockItemId, SUM(t.quantityUsedMilli) AS quantityUsedMilli, SUM(t.usageCount) AS usageCount FROM (" +
+           "SELECT u.stockItemId AS stockItemId, u.quantityUsedMilli AS quantityUsedMilli, 1L AS usageCount " +
+           "FROM Usage u WHERE u.date >= :startDate AND u.date < :endDate " +
+           "UNION ALL " +
+           "SELECT r.stockItemId AS stockItemId, r.quantityUsedMilli AS quantityUsedMilli, r.usageCount AS usageCount " +
+           "FROM UsageRollup r WHERE r.date >= :startDate AND r.date < :endDate) t " +
+           "GROUP BY t.stockItemId")
+    List<StockItemUsageTotal> sumQuantityByStockItemWithRollupsInRange(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT u FROM Usage u WHERE u.date < :cutoff ORDER BY u.id")
+    List<Usage> findOlderThan(LocalDate cutoff, Pageable pageable);
+
+    interface StockItemUsageTotal {
+        Long getStockItemId();
+        Long getQuantityUsedMilli();
+        Long getUsageCount();
+    }
+}
@@ -0,0 +1,13 @@
+package com.ms.ges.repository;
+
+import com.ms.ges.model.UsageRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface UsageRollupRepository extends JpaRepository<UsageRollup, Long> {
+    Optional<UsageRollup> findByDateAndStockItemId(LocalDate date, Long stockItemId);
+}
@@ -0,0 +1,363 @@
+package com.ms.ges.service;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.model.Expense;
+import com.ms.ges.model.ExpenseRollup;
+import com.ms.ges.model.Usage;
+import com.ms.ges.model.UsageRollup;
+import com.ms.ges.repository.ExpenseRepository;
+import com.ms.ges.repository.ExpenseRollupRepository;
+import com.ms.ges.repository.QuerySpecifications;
+import com.ms.ges.repository.UsageRepository;
+import com.ms.ges.repository.UsageRollupRepository;
+
+/**
+ * Moves usages and expenses dated before the retention horizon out of the hot tables into
+ * gzip-compressed NDJSON files, one per month, and leaves daily rollups behind for reports.
+ * Files are only ever appended to: every batch is written as its own gzip member and synced
+ * before the rows are deleted, so a crash can at worst leave a row both in a file and in the
+ * table. Readers skip such duplicates by id. Each branch archives into its own subdirectory.
+ * Cached report summaries of the months a batch touched are dropped once the batch commits.
+ */
+@Service
+public class ArchiveService {
+
+    private static final String USAGES = "usages";
+    private static final String EXPENSES = "expenses";
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final TypeReference<Map<String, Object>> ROW = new TypeReference<>() {
+    };
+
+    private final UsageRepository usageRepository;
+    private final ExpenseRepository expenseRepository;
+    private final UsageRollupRepository usageRollupRepository;
+    private final ExpenseRollupRepository expenseRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportCache reportCache;
+    private final ObjectMapper objectMapper;
+    private final Branches branches;
+    private final Path directory;
+    private final int retentionMonths;
+    private final int batchSize;
+
+    // Writers append whole gzip members under the write lock so readers never see a partial one
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock();
+    private final Map<String, Map<String, Object>> lastRuns = new ConcurrentHashMap<>();
+
+    public ArchiveService(
+            UsageRepository usageRepository,
+            ExpenseRepository expenseRepository,
+            UsageRollupRepository usageRollupRepository,
+            ExpenseRollupRepository expenseRollupRepository,
+            TransactionTemplate transactionTemplate,
+            ReportCache reportCache,
+            ObjectMapper objectMapper,
+            Branches branches,
+            @Value("${archive.directory:data/archive}") String directory,
+            @Value("${archive.retention-months:24}") int retentionMonths,
+            @Value("${archive.batch-size:1000}") int batchSize
+    ) {
+        this.usageRepository = usageRepository;
+        this.expenseRepository = expenseRepository;
+        this.usageRollupRepository = usageRollupRepository;
+        this.expenseRollupRepository = expenseRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.reportCache = reportCache;
+        this.objectMapper = objectMapper;
+        this.branches = branches;
+        this.directory = Paths.get(directory);
+        this.retentionMonths = retentionMonths;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * First day that stays in the hot tables. Everything dated earlier is archived.
+     */
+    public LocalDate cutoff() {
+        return YearMonth.now().minusMonths(retentionMonths).atDay(1);
+    }
+
+    @Scheduled(initialDelayString = "${archive.initial-delay:600000}", fixedDelayString = "${archive.interval:86400000}")
+    public void scheduledArchive() {
+        branches.forEach(branch -> archive());
+    }
+
+    public synchronized Map<String, Object> archive() {
+        LocalDate cutoff = cutoff();
+        long started = System.nanoTime();
+        long usages = 0;
+        long expenses = 0;
+
+        int moved;
+        while ((moved = transactionTemplate.execute(status -> archiveUsageBatch(cutoff))) > 0) {
+            usages += moved;
+        }
+        while ((moved = transactionTemplate.execute(status -> archiveExpenseBatch(cutoff))) > 0) {
+            expenses += moved;
+        }
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("finishedAt", Instant.now());
+        run.put("cutoff", cutoff);
+        run.put("archivedUsages", usages);
+        run.put("archivedExpenses", expenses);
+        run.put("durationMillis", (System.nanoTime() - started) / 1_000_000);
+        lastRuns.put(BranchContext.current(), run);
+        return run;
+    }
+
+    private int archiveUsageBatch(LocalDate cutoff) {
+        List<Usage> batch = usageRepository.findOlderThan(cutoff, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        append(USAGES, batch, Usage::getDate, ArchiveService::toRow);
+
+        Map<LocalDate, Map<Long, UsageRollup>> rollups = new TreeMap<>();
+        for (Usage usage : batch) {
+            UsageRollup rollup = rollups
+                    .computeIfAbsent(usage.getDate(), date -> new TreeMap<>())
+                    .computeIfAbsent(usage.getStockItemId(), id -> usageRollupRepository
+                            .findByDateAndStockItemId(usage.getDate(), id)
+                            .orElseGet(() -> newUsageRollup(usage.getDate(), id)));
+            rollup.setQuantityUsedMilli(rollup.getQuantityUsedMilli() + (usage.getQuantityUsedMilli() != null ? usage.getQuantityUsedMilli() : 0L));
+            rollup.setUsageCount(rollup.getUsageCount() + 1);
+        }
+        rollups.values().forEach(byItem -> usageRollupRepository.saveAll(byItem.values()));
+        usageRepository.deleteAllInBatch(batch);
+        evictMonths(batch, Usage::getDate);
+        return batch.size();
+    }
+
+    private int archiveExpenseBatch(LocalDate cutoff) {
+        List<Expense> batch = expenseRepository.findOlderThan(cutoff, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        append(EXPENSES, batch, Expense::getDate, ArchiveService::toRow);
+
+        Map<LocalDate, Map<String, ExpenseRollup>> rollups = new TreeMap<>();
+        for (Expense expense : batch) {
+            ExpenseRollup rollup = rollups
+                    .computeIfAbsent(expense.getDate(), date -> new TreeMap<>())
+                    .computeIfAbsent(expense.getCategory(), category -> expenseRollupRepository
+                            .findByDateAndCategory(expense.getDate(), category)
+                            .orElseGet(() -> newExpenseRollup(expense.getDate(), category)));
+            rollup.setAmountCents(rollup.getAmountCents() + (expense.getAmountCents() != null ? expense.getAmountCents() : 0L));
+            rollup.setExpenseCount(rollup.getExpenseCount() + 1);
+        }
+        rollups.values().forEach(byCategory -> expenseRollupRepository.saveAll(byCategory.values()));
+        expenseRepository.deleteAllInBatch(batch);
+        evictMonths(batch, Expense::getDate);
+        return batch.size();
+    }
+
+    // Deferred by the cache until the batch commits
+    private <T> void evictMonths(List<T> batch, Function<T, LocalDate> date) {
+        batch.stream()
+                .map(record -> YearMonth.from(date.apply(record)))
+                .distinct()
+                .forEach(month -> reportCache.evict(month.atDay(1)));
+    }
+
+    /**
+     * Usages dated in [from, to] (both inclusive), read from the archive for archived months and
+     * from the table for the rest.
+     */
+    public List<Map<String, Object>> exportUsages(LocalDate from, LocalDate to) {
+        List<Map<String, Object>> rows = readArchived(USAGES, from, to);
+        usageRepository.findAll(QuerySpecifications.dateInRange("date", from, to), Sort.by("date", "id"))
+                .forEach(usage -> rows.add(toRow(usage)));
+        return deduplicate(rows);
+    }
+
+    public List<Map<String, Object>> exportExpenses(LocalDate from, LocalDate to) {
+        List<Map<String, Object>> rows = readArchived(EXPENSES, from, to);
+        expenseRepository.findAll(QuerySpecifications.dateInRange("date", from, to), Sort.by("date", "id"))
+                .forEach(expense -> rows.add(toRow(expense)));
+        return deduplicate(rows);
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("directory", branchDirectory().toAbsolutePath().toString());
+        status.put("retentionMonths", retentionMonths);
+        status.put("cutoff", cutoff());
+        status.put(USAGES, archivedMonths(USAGES));
+        status.put(EXPENSES, archivedMonths(EXPENSES));
+        status.put("lastRun", lastRuns.getOrDefault(BranchContext.current(), Map.of()));
+        return status;
+    }
+
+    private <T> void append(String kind, List<T> batch, Function<T, LocalDate> date, Function<T, Map<String, Object>> row) {
+        Map<YearMonth, List<T>> byMonth = new TreeMap<>();
+        batch.forEach(record -> byMonth.computeIfAbsent(YearMonth.from(date.apply(record)), m -> new ArrayList<>()).add(record));
+
+        fileLock.writeLock().lock();
+        try {
+            Files.createDirectories(branchDirectory().resolve(kind));
+            for (Map.Entry<YearMonth, List<T>> month : byMonth.entrySet()) {
+                try (FileOutputStream file = new FileOutputStream(file(kind, month.getKey()).toFile(), true);
+                     GZIPOutputStream gzip = new GZIPOutputStream(file)) {
+                    for (T record : month.getValue()) {
+                        gzip.write(objectMapper.writeValueAsBytes(row.apply(record)));
+                        gzip.write('\n');
+                    }
+                    gzip.finish();
+                    file.getFD().sync();
+                }
+            }
+        } catch (IOException e) {
+            // Rolls back the batch, so the rows stay in the table
+            throw new UncheckedIOException("Could not write archive for " + kind, e);
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    private List<Map<String, Object>> readArchived(String kind, LocalDate from, LocalDate to) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        fileLock.readLock().lock();
+        try {
+            for (Map<String, Object> archived : archivedMonths(kind)) {
+                YearMonth month = YearMonth.parse((String) archived.get("month"));
+                if ((from != null && month.isBefore(YearMonth.from(from))) || (to != null && month.isAfter(YearMonth.from(to)))) {
+                    continue;
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(file(kind, month))), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Map<String, Object> row = objectMapper.readValue(line, ROW);
+                        LocalDate date = LocalDate.parse((String) row.get("date"));
+                        if ((from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to))) {
+                            rows.add(row);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive for " + kind, e);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    private List<Map<String, Object>> archivedMonths(String kind) {
+        Path kindDirectory = branchDirectory().resolve(kind);
+        if (!Files.isDirectory(kindDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(kindDirectory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .map(path -> {
+                        Map<String, Object> month = new LinkedHashMap<>();
+                        String name = path.getFileName().toString();
+                        month.put("month", name.substring(0, name.length() - SUFFIX.length()));
+                        month.put("bytes", path.toFile().length());
+                        return month;
+                    })
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list archive for " + kind, e);
+        }
+    }
+
+    private static List<Map<String, Object>> deduplicate(List<Map<String, Object>> rows) {
+        Set<Object> seen = new HashSet<>();
+        List<Map<String, Object>> unique = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            if (seen.add(((Number) row.get("id")).longValue())) {
+                unique.add(row);
+            }
+        }
+        unique.sort(Comparator.comparing((Map<String, Object> row) -> row.get("date").toString())
+                .thenComparingLong(row -> ((Number) row.get("id")).longValue()));
+        return unique;
+    }
+
+    private Path file(String kind, YearMonth month) {
+        return branchDirectory().resolve(kind).resolve(month + SUFFIX);
+    }
+
+    private Path branchDirectory() {
+        return directory.resolve(BranchContext.current());
+    }
+
+    private static Map<String, Object> toRow(Usage usage) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", usage.getId());
+        row.put("stockItemId", usage.getStockItemId());
+        row.put("quantityUsed", usage.getQuantityUsed());
+        row.put("date", usage.getDate().toString());
+        row.put("userId", usage.getUser() != null ? usage.getUser().getId() : null);
+        return row;
+    }
+
+    private static Map<String, Object> toRow(Expense expense) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", expense.getId());
+        row.put("category", expense.getCategory());
+        row.put("amount", expense.getAmount());
+        row.put("date", expense.getDate().toString());
+        row.put("description", expense.getDescription());
+        return row;
+    }
+
+    private static UsageRollup newUsageRollup(LocalDate date, Long stockItemId) {
+        UsageRollup rollup = new UsageRollup();
+        rollup.setDate(date);
+        rollup.setStockItemId(stockItemId);
+        rollup.setQuantityUsedMilli(0L);
+        rollup.setUsageCount(0L);
+        return rollup;
+    }
+
+    private static ExpenseRollup newExpenseRollup(LocalDate date, String category) {
+        ExpenseRollup rollup = new ExpenseRollup();
+        rollup.setDate(date);
+        rollup.setCategory(category);
+        rollup.setAmountCents(0L);
+        rollup.setExpenseCount(0L);
+        return rollup;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ms.ges.service;
+
+import java.util.function.Supplier;
+
+/**
+ * The branch (restaurant) the current thread works for. Request threads take it from the token,
+ * everything else runs on the default branch unless it is wrapped in {@link #run} or
+ * {@link #call}. Hibernate filters every branch-scoped entity by it and the routing data source
+ * picks the branch's database with it.
+ */
+public final class BranchContext {
+
+    public static final String DEFAULT_BRANCH = "main";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private BranchContext() {
+    }
+
+    public static String current() {
+        String branch = CURRENT.get();
+        return branch != null ? branch : DEFAULT_BRANCH;
+    }
+
+    public static void set(String branch) {
+        CURRENT.set(branch);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void run(String branch, Runnable action) {
+        call(branch, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(String branch, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(branch);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ms.ges.service;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+/**
+ * The configured branches: {@code branches.names} plus every branch that has its own database
+ * under {@code branches.databases}. The default branch always exists.
+ */
+@Service
+public class Branches {
+
+    private final Set<String> names;
+
+    public Branches(Environment environment) {
+        Binder binder = Binder.get(environment);
+        Set<String> names = new LinkedHashSet<>();
+        names.add(BranchContext.DEFAULT_BRANCH);
+        names.addAll(binder.bind("branches.names", Bindable.listOf(String.class)).orElse(List.of()));
+        names.addAll(binder.bind("branches.databases", Bindable.mapOf(String.class, String.class))
+                .orElseGet(Map::of).keySet());
+        this.names = Collections.unmodifiableSet(names);
+    }
+
+    public Set<String> all() {
+        return names;
+    }
+
+    public boolean exists(String branch) {
+        return names.contains(branch);
+    }
+
+    /**
+     * Runs {@code action} once per branch with the branch set as the current one.
+     */
+    public void forEach(Consumer<String> action) {
+        names.forEach(branch -> BranchContext.run(branch, () -> action.accept(branch)));
+    }
+}
@@ -0,0 +1,111 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Separate concurrency limits for the analytics and the transactional request paths. A request
+ * holds at most one JDBC connection, so the analytics limit plus the report job pool and the
+ * dashboard query limit is also the most connections analytics can take from the pool; the rest
+ * stays free for recording usages and purchases. Requests beyond the limit wait in a bounded
+ * queue and are shed when it is full or their wait times out.
+ */
+@Slf4j
+@Service
+public class Bulkheads {
+
+    public enum Kind {
+        ANALYTICS,
+        TRANSACTIONAL
+    }
+
+    public static final class Bulkhead {
+        private final Semaphore permits;
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final long maxWaitNanos;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Counter rejected;
+
+        Bulkhead(Kind kind, int maxConcurrent, int maxQueued, Duration maxWait, MeterRegistry registry) {
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWaitNanos = maxWait.toNanos();
+            String tag = kind.name().toLowerCase();
+            Gauge.builder("ges.bulkhead.active", this, b -> b.maxConcurrent - b.permits.availablePermits())
+                    .tag("bulkhead", tag).register(registry);
+            Gauge.builder("ges.bulkhead.queued", queued, AtomicInteger::get)
+                    .tag("bulkhead", tag).register(registry);
+            rejected = Counter.builder("ges.bulkhead.rejected").tag("bulkhead", tag).register(registry);
+        }
+
+        /**
+         * Returns false when the request must be shed. A true result must be paired with
+         * {@link #release()}.
+         */
+        public boolean tryEnter() throws InterruptedException {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            try {
+                if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+                rejected.increment();
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        public void release() {
+            permits.release();
+        }
+    }
+
+    private final Map<Kind, Bulkhead> bulkheads = new EnumMap<>(Kind.class);
+
+    public Bulkheads(
+            MeterRegistry registry,
+            @Value("${bulkhead.analytics.max-concurrent:3}") int analyticsConcurrent,
+            @Value("${bulkhead.analytics.max-queued:10}") int analyticsQueued,
+            @Value("${bulkhead.analytics.max-wait:2s}") Duration analyticsWait,
+            @Value("${bulkhead.transactional.max-concurrent:10}") int transactionalConcurrent,
+            @Value("${bulkhead.transactional.max-queued:100}") int transactionalQueued,
+            @Value("${bulkhead.transactional.max-wait:500ms}") Duration transactionalWait,
+            @Value("${reports.jobs.pool-size:2}") int reportJobThreads,
+            @Value("${dashboard.max-concurrent-queries:3}") int dashboardQueries,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize
+    ) {
+        bulkheads.put(Kind.ANALYTICS, new Bulkhead(Kind.ANALYTICS, analyticsConcurrent, analyticsQueued, analyticsWait, registry));
+        bulkheads.put(Kind.TRANSACTIONAL, new Bulkhead(Kind.TRANSACTIONAL, transactionalConcurrent, transactionalQueued, transactionalWait, registry));
+
+        int analyticsConnections = analyticsConcurrent + reportJobThreads + dashboardQueries;
+        if (analyticsConnections >= connectionPoolSize) {
+            log.warn("Analytics can hold {} of {} pooled connections; nothing is left reserved for usage and purchase writes",
+                    analyticsConnections, connectionPoolSize);
+        }
+    }
+
+    public Bulkhead get(Kind kind) {
+        return bulkheads.get(kind);
+    }
+}
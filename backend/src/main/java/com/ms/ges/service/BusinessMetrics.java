@@ -0,0 +1,53 @@
+package com.ms.ges.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.ms.ges.repository.StockRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Business level meters next to the technical ones Spring Boot registers, tagged by branch.
+ * Usages per minute is {@code rate(ges_usages_recorded_total[1m]) * 60} on the Prometheus side.
+ */
+@Service
+public class BusinessMetrics {
+
+    private final Map<String, Counter> usagesRecorded = new HashMap<>();
+    private final Map<String, Counter> purchasesRecorded = new HashMap<>();
+
+    public BusinessMetrics(MeterRegistry registry, StockRepository stockRepository, Branches branches) {
+        for (String branch : branches.all()) {
+            Gauge.builder("ges.stock.low", stockRepository,
+                            repository -> BranchContext.call(branch, repository::countLowStockItems))
+                    .description("Stock items at or below their minimum quantity")
+                    .tag("branch", branch)
+                    .register(registry);
+            usagesRecorded.put(branch, Counter.builder("ges.usages.recorded")
+                    .description("Usage records created")
+                    .tag("branch", branch)
+                    .register(registry));
+            purchasesRecorded.put(branch, Counter.builder("ges.purchases.recorded")
+                    .description("Purchases created")
+                    .tag("branch", branch)
+                    .register(registry));
+        }
+    }
+
+    public void usageRecorded() {
+        usagesRecorded.get(BranchContext.current()).increment();
+    }
+
+    public void usagesRecorded(int count) {
+        usagesRecorded.get(BranchContext.current()).increment(count);
+    }
+
+    public void purchaseRecorded() {
+        purchasesRecorded.get(BranchContext.current()).increment();
+    }
+}
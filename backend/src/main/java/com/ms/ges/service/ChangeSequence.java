@@ -0,0 +1,51 @@
+package com.ms.ges.service;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Global, monotonically increasing change sequence. A number handed out inside a transaction
+ * stays "in flight" until that transaction completes, and {@link #highWaterMark()} never moves
+ * past the oldest in-flight number, so a reader can't skip a change that commits late.
+ */
+@Component
+public class ChangeSequence {
+
+    private long last;
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+
+    public synchronized void advanceTo(long value) {
+        last = Math.max(last, value);
+    }
+
+    public long next() {
+        long seq;
+        synchronized (this) {
+            seq = ++last;
+            inFlight.add(seq);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    release(seq);
+                }
+            });
+        } else {
+            release(seq);
+        }
+        return seq;
+    }
+
+    public synchronized long highWaterMark() {
+        return inFlight.isEmpty() ? last : inFlight.first() - 1;
+    }
+
+    private synchronized void release(long seq) {
+        inFlight.remove(seq);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ms.ges.service;
+
+import org.springframework.stereotype.Component;
+
+import com.ms.ges.model.SyncTracked;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+public class ChangeTrackingListener {
+
+    private final ChangeSequence changeSequence;
+
+    @PrePersist
+    @PreUpdate
+    public void stamp(SyncTracked entity) {
+        entity.setChangeSeq(changeSequence.next());
+    }
+}
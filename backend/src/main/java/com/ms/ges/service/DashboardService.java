@@ -0,0 +1,219 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.Usage;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.UsageRepository;
+import com.ms.ges.repository.UsageRepository.StockItemUsageTotal;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.criteria.JoinType;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Assembles the dashboard from independent sections that are queried concurrently, each on its
+ * own virtual thread and therefore its own pooled connection. The whole response shares one
+ * deadline: sections that have not finished by then are reported as timed out, and the sections
+ * that did finish are still returned.
+ * <p>
+ * A section's statements get the time left as their query timeout, so a section that runs late is
+ * stopped by the database and gives its connection back. Sections are never interrupted: the
+ * monthly totals may be the report cache's computation that other requests are waiting on, so
+ * they run to completion and fill the cache for the next request.
+ */
+@Slf4j
+@Service
+public class DashboardService {
+
+    private static final int RECENT_USAGES = 10;
+    // Shared with concurrent requests through the report cache, so not held to one request's deadline
+    private static final Set<String> SHARED_SECTIONS = Set.of("monthlyTotals");
+
+    private final ReportCache reportCache;
+    private final StockRepository stockRepository;
+    private final UsageRepository usageRepository;
+    private final SupplierSpendService supplierSpendService;
+    private final PlatformTransactionManager transactionManager;
+    private final long deadlineNanos;
+    private final int topItems;
+    private final int topConsumedDays;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Caps the connections all dashboard requests together take from the pool
+    private final Semaphore queryPermits;
+
+    public DashboardService(
+            ReportCache reportCache,
+            StockRepository stockRepository,
+            UsageRepository usageRepository,
+            SupplierSpendService supplierSpendService,
+            PlatformTransactionManager transactionManager,
+            @Value("${dashboard.deadline:2s}") Duration deadline,
+            @Value("${dashboard.max-concurrent-queries:3}") int maxConcurrentQueries,
+            @Value("${dashboard.top-items:5}") int topItems,
+            @Value("${dashboard.top-consumed-days:30}") int topConsumedDays
+    ) {
+        this.reportCache = reportCache;
+        this.stockRepository = stockRepository;
+        this.usageRepository = usageRepository;
+        this.supplierSpendService = supplierSpendService;
+        this.transactionManager = transactionManager;
+        this.deadlineNanos = deadline.toNanos();
+        this.queryPermits = new Semaphore(maxConcurrentQueries, true);
+        this.topItems = topItems;
+        this.topConsumedDays = topConsumedDays;
+    }
+
+    public Map<String, Object> dashboard(YearMonth month) {
+        LocalDate today = LocalDate.now();
+        LocalDate consumedFrom = today.minusDays(topConsumedDays - 1L);
+
+        Map<String, Supplier<Object>> sections = new LinkedHashMap<>();
+        sections.put("monthlyTotals", () -> reportCache.monthlySummary(month));
+        sections.put("lowStockItems", stockRepository::findLowStockItems);
+        sections.put("recentUsages", this::recentUsages);
+        sections.put("topConsumedItems", () -> topConsumedItems(consumedFrom, today.plusDays(1)));
+        sections.put("supplierSpend", () -> supplierSpendService.ranking(month.atDay(1), month.atEndOfMonth(), topItems, 3));
+
+        String branch = BranchContext.current();
+        boolean primaryRequired = ReplicaContext.primaryRequired();
+        long deadline = System.nanoTime() + deadlineNanos;
+        Map<String, Future<Object>> futures = new LinkedHashMap<>();
+        sections.forEach((name, section) -> futures.put(name,
+                executor.submit(() -> runSection(() -> BranchContext.call(branch, () -> ReplicaContext.call(primaryRequired, section)),
+                        deadline, !SHARED_SECTIONS.contains(name)))));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("month", month.toString());
+        response.put("generatedAt", Instant.now());
+        List<String> timedOut = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, Future<Object>> entry : futures.entrySet()) {
+            String name = entry.getKey();
+            Object value = null;
+            try {
+                value = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Only keeps a section from starting; one that runs is stopped by its query timeout
+                entry.getValue().cancel(false);
+                timedOut.add(name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                entry.getValue().cancel(false);
+                timedOut.add(name);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TimeoutException
+                        || e.getCause() instanceof QueryTimeoutException
+                        || e.getCause() instanceof TransactionTimedOutException) {
+                    timedOut.add(name);
+                } else {
+                    log.warn("Dashboard section {} failed", name, e.getCause());
+                    failed.add(name);
+                }
+            }
+            response.put(name, value);
+        }
+        response.put("partial", !timedOut.isEmpty() || !failed.isEmpty());
+        response.put("timedOut", timedOut);
+        response.put("failed", failed);
+        return response;
+    }
+
+    private Object runSection(Supplier<Object> section, long deadline, boolean bounded) throws InterruptedException, TimeoutException {
+        if (!queryPermits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException();
+        }
+        try {
+            if (!bounded) {
+                return section.get();
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            // Hibernate gives each statement what is left of the transaction timeout, which is in whole seconds
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            transaction.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            return transaction.execute(status -> section.get());
+        } finally {
+            queryPermits.release();
+        }
+    }
+
+    // Sections run outside the request's persistence context, so the user is fetched eagerly
+    private List<Map<String, Object>> recentUsages() {
+        Specification<Usage> withUser = (root, query, cb) -> {
+            root.fetch("user", JoinType.LEFT);
+            return cb.conjunction();
+        };
+        List<Usage> usages = usageRepository.findBy(withUser,
+                query -> query.sortBy(Sort.by(Sort.Direction.DESC, "date", "id")).limit(RECENT_USAGES).all());
+        List<Map<String, Object>> rows = new ArrayList<>(usages.size());
+        for (Usage usage : usages) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", usage.getId());
+            row.put("stockItemId", usage.getStockItemId());
+            row.put("quantityUsed", usage.getQuantityUsed());
+            row.put("date", usage.getDate());
+            row.put("username", usage.getUser() != null ? usage.getUser().getUsername() : null);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private List<Map<String, Object>> topConsumedItems(LocalDate start, LocalDate end) {
+        List<StockItemUsageTotal> top = usageRepository.sumQuantityByStockItemInRange(start, end).stream()
+                .sorted(Comparator.comparing(StockItemUsageTotal::getQuantityUsedMilli).reversed())
+                .limit(topItems)
+                .toList();
+        Map<Long, String> names = stockRepository.findAllById(top.stream().map(StockItemUsageTotal::getStockItemId).toList())
+                .stream().collect(Collectors.toMap(StockItem::getId, StockItem::getName));
+
+        List<Map<String, Object>> rows = new ArrayList<>(top.size());
+        for (StockItemUsageTotal total : top) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("stockItemId", total.getStockItemId());
+            row.put("stockItemName", names.get(total.getStockItemId()));
+            row.put("quantityUsed", FixedPoint.fromMilli(total.getQuantityUsedMilli()));
+            row.put("usageCount", total.getUsageCount());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,42 @@
+package com.ms.ges.service;
+
+import com.ms.ges.exception.PreconditionFailedException;
+import com.ms.ges.exception.PreconditionRequiredException;
+
+/**
+ * Entity tags derived from an entity's {@code @Version}. Updates must send the tag they last read
+ * in {@code If-Match}; the check here rejects stale tags up front, and the version condition in
+ * the UPDATE statement catches a writer that commits in between. Services run the check in the
+ * transaction that loads the entity, so it compares the version that is about to be updated.
+ */
+public final class EntityTags {
+
+    public static final String IF_MATCH = "If-Match";
+
+    private EntityTags() {
+    }
+
+    public static String of(Long version) {
+        return "\"" + (version != null ? version : 0L) + "\"";
+    }
+
+    public static void check(String ifMatch, Long currentVersion) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new PreconditionRequiredException(IF_MATCH + " header is required to update this resource");
+        }
+        String current = of(currentVersion);
+        for (String tag : ifMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*")) {
+                return;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(current)) {
+                return;
+            }
+        }
+        throw new PreconditionFailedException("The record was modified by another request; reload it and try again");
+    }
+}
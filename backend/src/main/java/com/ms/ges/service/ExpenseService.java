@@ -0,0 +1,85 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.exception.ResourceNotFoundException;
+import com.ms.ges.model.Expense;
+import com.ms.ges.model.SyncEntity;
+import com.ms.ges.repository.ExpenseRepository;
+import com.ms.ges.repository.QuerySpecifications;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class ExpenseService {
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "date", "category");
+
+    private final ExpenseRepository expenseRepository;
+    private final ReportCache reportCache;
+    private final SyncService syncService;
+
+    @Transactional(readOnly = true)
+    public List<Expense> findAll(String category, LocalDate from, LocalDate to, Sort sort) {
+        Specification<Expense> spec = Specification.allOf(
+                QuerySpecifications.equalTo("category", category),
+                QuerySpecifications.dateInRange("date", from, to));
+        return expenseRepository.findAll(spec, QuerySpecifications.validateSort(sort, SORTABLE_FIELDS));
+    }
+
+    @Transactional(readOnly = true)
+    public Expense findById(Long id) {
+        return expenseRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
+    }
+
+    @Transactional
+    public Expense create(Expense expense) {
+        // Set current date if not provided
+        if (expense.getDate() == null) {
+            expense.setDate(LocalDate.now());
+        }
+
+        Expense savedExpense = expenseRepository.save(expense);
+        reportCache.evict(savedExpense.getDate());
+        return savedExpense;
+    }
+
+    @Transactional
+    public Expense update(Long id, String ifMatch, Expense expenseDetails) {
+        Expense expense = expenseRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
+        EntityTags.check(ifMatch, expense.getVersion());
+
+        LocalDate previousDate = expense.getDate();
+        expense.setCategory(expenseDetails.getCategory());
+        expense.setAmount(expenseDetails.getAmount());
+        expense.setDescription(expenseDetails.getDescription());
+        if (expenseDetails.getDate() != null) {
+            expense.setDate(expenseDetails.getDate());
+        }
+
+        // Flushed here so the response carries the new version
+        Expense updatedExpense = expenseRepository.saveAndFlush(expense);
+        reportCache.evict(previousDate);
+        reportCache.evict(updatedExpense.getDate());
+        return updatedExpense;
+    }
+
+    @Transactional
+    public void delete(Long id) {
+        Expense expense = expenseRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Expense not found with id: " + id));
+        expenseRepository.delete(expense);
+        syncService.recordDeletion(SyncEntity.EXPENSE, expense.getId());
+        reportCache.evict(expense.getDate());
+    }
+}
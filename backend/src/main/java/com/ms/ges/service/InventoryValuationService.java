@@ -0,0 +1,297 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ms.ges.model.CostLayer;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.StockValuation;
+import com.ms.ges.repository.CostLayerRepository;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.StockValuationRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Maintains per-item cost layers and running valuation totals. Every stock movement updates the
+ * item's {@link StockValuation} row in place, so a valuation query reads one row per item.
+ *
+ * Callers must record a movement before changing {@code StockItem.quantity}: an item without a
+ * valuation row gets an opening layer for its current quantity at its unit price.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryValuationService {
+
+    private static final double EPSILON = 1e-9;
+
+    private static final String UPDATE_LAYER_SQL = "UPDATE cost_layers SET remaining_quantity = ? WHERE id = ? AND branch = ?";
+    private static final String UPDATE_VALUATION_SQL = "UPDATE stock_valuations SET quantity = ?, fifo_value = ? "
+            + "WHERE stock_item_id = ? AND branch = ?";
+
+    private final CostLayerRepository costLayerRepository;
+    private final StockValuationRepository stockValuationRepository;
+    private final StockRepository stockRepository;
+    private final Branches branches;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeMissingValuations() {
+        branches.forEach(branch -> transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, StockValuation> existing = stockValuationRepository.findAll().stream()
+                    .collect(Collectors.toMap(StockValuation::getStockItemId, Function.identity()));
+            stockRepository.findAll().stream()
+                    .filter(item -> !existing.containsKey(item.getId()))
+                    .forEach(this::openingBalance);
+        }));
+    }
+
+    @Transactional
+    public StockValuation openingBalance(StockItem stockItem) {
+        double quantity = valueOf(stockItem.getQuantity());
+        double unitCost = valueOf(stockItem.getUnitPrice());
+
+        StockValuation valuation = new StockValuation();
+        valuation.setStockItemId(stockItem.getId());
+        valuation.setQuantity(quantity);
+        valuation.setAverageCost(unitCost);
+        valuation.setFifoValue(quantity * unitCost);
+        if (quantity > EPSILON) {
+            addLayer(stockItem.getId(), quantity, unitCost, LocalDate.now());
+        }
+        return stockValuationRepository.save(valuation);
+    }
+
+    @Transactional
+    public void recordReceipt(StockItem stockItem, double quantity, double unitCost, LocalDate date) {
+        StockValuation valuation = valuationFor(stockItem);
+        double onHand = valuation.getQuantity();
+
+        addLayer(stockItem.getId(), quantity, unitCost, date);
+        valuation.setAverageCost(onHand + quantity > EPSILON
+                ? (onHand * valuation.getAverageCost() + quantity * unitCost) / (onHand + quantity)
+                : unitCost);
+        valuation.setQuantity(onHand + quantity);
+        valuation.setFifoValue(valuation.getFifoValue() + quantity * unitCost);
+        stockValuationRepository.save(valuation);
+    }
+
+    @Transactional
+    public void recordIssue(StockItem stockItem, double quantity) {
+        StockValuation valuation = valuationFor(stockItem);
+        costLayerRepository.saveAll(issue(valuation, costLayerRepository.findOpenLayers(stockItem.getId()), quantity));
+        stockValuationRepository.save(valuation);
+    }
+
+    /**
+     * Records the issue of several items at once, for a sale of dishes with many ingredients: the
+     * valuations and open layers of all of them are read with one query each and written back
+     * with one batch each, instead of a few statements per item.
+     */
+    @Transactional
+    public void recordIssues(Map<Long, StockItem> stockItems, Map<Long, Double> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String branch = BranchContext.current();
+        Map<Long, StockValuation> valuations = loadValuations(branch, quantities.keySet());
+        Map<Long, List<CostLayer>> openLayers = loadOpenLayers(branch, quantities.keySet());
+
+        List<Object[]> layerUpdates = new ArrayList<>();
+        List<Object[]> valuationUpdates = new ArrayList<>(quantities.size());
+        quantities.forEach((stockItemId, quantity) -> {
+            StockValuation valuation = valuations.get(stockItemId);
+            if (valuation == null) {
+                // Opens the valuation first, which is rare enough to go one at a time
+                recordIssue(stockItems.get(stockItemId), quantity);
+                return;
+            }
+            for (CostLayer layer : issue(valuation, openLayers.getOrDefault(stockItemId, List.of()), quantity)) {
+                layerUpdates.add(new Object[]{layer.getRemainingQuantity(), layer.getId(), branch});
+            }
+            valuationUpdates.add(new Object[]{valuation.getQuantity(), valuation.getFifoValue(), stockItemId, branch});
+        });
+        if (!layerUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_LAYER_SQL, layerUpdates);
+        }
+        if (!valuationUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_VALUATION_SQL, valuationUpdates);
+        }
+    }
+
+    /**
+     * Puts previously issued quantity back (a usage deleted or reduced). The exact layers it
+     * came from are not tracked, so it returns as a new layer at the current average cost.
+     */
+    @Transactional
+    public void recordReturn(StockItem stockItem, double quantity, LocalDate date) {
+        StockValuation valuation = valuationFor(stockItem);
+        double unitCost = valuation.getAverageCost();
+
+        addLayer(stockItem.getId(), quantity, unitCost, date);
+        valuation.setQuantity(valuation.getQuantity() + quantity);
+        valuation.setFifoValue(valuation.getFifoValue() + quantity * unitCost);
+        stockValuationRepository.save(valuation);
+    }
+
+    @Transactional
+    public void recordAdjustment(StockItem stockItem, double newQuantity) {
+        double delta = newQuantity - valueOf(stockItem.getQuantity());
+        if (delta > EPSILON) {
+            StockValuation valuation = valuationFor(stockItem);
+            double unitCost = valuation.getQuantity() > EPSILON
+                    ? valuation.getAverageCost()
+                    : valueOf(stockItem.getUnitPrice());
+            recordReceipt(stockItem, delta, unitCost, LocalDate.now());
+        } else if (delta < -EPSILON) {
+            recordIssue(stockItem, -delta);
+        }
+    }
+
+    @Transactional
+    public void remove(Long stockItemId) {
+        costLayerRepository.deleteByStockItemId(stockItemId);
+        stockValuationRepository.deleteById(stockItemId);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> valuation() {
+        Map<Long, StockItem> stockItems = stockRepository.findAll().stream()
+                .collect(Collectors.toMap(StockItem::getId, Function.identity()));
+
+        double weightedAverageTotal = 0.0;
+        double fifoTotal = 0.0;
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (StockValuation valuation : stockValuationRepository.findAll()) {
+            StockItem stockItem = stockItems.get(valuation.getStockItemId());
+            if (stockItem == null) {
+                continue;
+            }
+            double weightedAverageValue = valuation.getQuantity() * valuation.getAverageCost();
+            weightedAverageTotal += weightedAverageValue;
+            fifoTotal += valuation.getFifoValue();
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("stockItemId", stockItem.getId());
+            item.put("name", stockItem.getName());
+            item.put("quantity", valuation.getQuantity());
+            item.put("averageCost", valuation.getAverageCost());
+            item.put("weightedAverageValue", weightedAverageValue);
+            item.put("fifoValue", valuation.getFifoValue());
+            items.add(item);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("weightedAverageTotal", weightedAverageTotal);
+        result.put("fifoTotal", fifoTotal);
+        result.put("items", items);
+        return result;
+    }
+
+    // Takes the quantity from the oldest open layers first and returns the layers it drew from
+    private static List<CostLayer> issue(StockValuation valuation, List<CostLayer> openLayers, double quantity) {
+        double outstanding = quantity;
+        double consumedCost = 0.0;
+        List<CostLayer> touched = new ArrayList<>();
+        for (CostLayer layer : openLayers) {
+            double taken = Math.min(outstanding, layer.getRemainingQuantity());
+            layer.setRemainingQuantity(layer.getRemainingQuantity() - taken);
+            consumedCost += taken * layer.getUnitCost();
+            outstanding -= taken;
+            touched.add(layer);
+            if (outstanding <= EPSILON) {
+                break;
+            }
+        }
+
+        // Anything not covered by layers is costed at the running average
+        if (outstanding > EPSILON) {
+            consumedCost += outstanding * valuation.getAverageCost();
+        }
+
+        double remaining = Math.max(0.0, valuation.getQuantity() - quantity);
+        valuation.setQuantity(remaining);
+        valuation.setFifoValue(remaining > EPSILON ? Math.max(0.0, valuation.getFifoValue() - consumedCost) : 0.0);
+        return touched;
+    }
+
+    private Map<Long, StockValuation> loadValuations(String branch, Collection<Long> stockItemIds) {
+        Map<Long, StockValuation> valuations = new HashMap<>();
+        jdbcTemplate.query("SELECT stock_item_id, quantity, average_cost, fifo_value FROM stock_valuations "
+                        + "WHERE branch = ? AND stock_item_id IN (" + placeholders(stockItemIds) + ")",
+                rs -> {
+                    StockValuation valuation = new StockValuation();
+                    valuation.setStockItemId(rs.getLong("stock_item_id"));
+                    valuation.setQuantity(rs.getDouble("quantity"));
+                    valuation.setAverageCost(rs.getDouble("average_cost"));
+                    valuation.setFifoValue(rs.getDouble("fifo_value"));
+                    valuations.put(valuation.getStockItemId(), valuation);
+                },
+                arguments(branch, stockItemIds));
+        return valuations;
+    }
+
+    // In the order findOpenLayers returns them, per item
+    private Map<Long, List<CostLayer>> loadOpenLayers(String branch, Collection<Long> stockItemIds) {
+        Map<Long, List<CostLayer>> layers = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock_item_id, remaining_quantity, unit_cost FROM cost_layers "
+                        + "WHERE branch = ? AND stock_item_id IN (" + placeholders(stockItemIds) + ") "
+                        + "AND remaining_quantity > 0 ORDER BY stock_item_id, received_date, id",
+                rs -> {
+                    CostLayer layer = new CostLayer();
+                    layer.setId(rs.getLong("id"));
+                    layer.setStockItemId(rs.getLong("stock_item_id"));
+                    layer.setRemainingQuantity(rs.getDouble("remaining_quantity"));
+                    layer.setUnitCost(rs.getDouble("unit_cost"));
+                    layers.computeIfAbsent(layer.getStockItemId(), id -> new ArrayList<>()).add(layer);
+                },
+                arguments(branch, stockItemIds));
+        return layers;
+    }
+
+    private static String placeholders(Collection<Long> ids) {
+        return String.join(", ", Collections.nCopies(ids.size(), "?"));
+    }
+
+    private static Object[] arguments(String branch, Collection<Long> ids) {
+        List<Object> arguments = new ArrayList<>(ids.size() + 1);
+        arguments.add(branch);
+        arguments.addAll(ids);
+        return arguments.toArray();
+    }
+
+    private StockValuation valuationFor(StockItem stockItem) {
+        return stockValuationRepository.findById(stockItem.getId())
+                .orElseGet(() -> openingBalance(stockItem));
+    }
+
+    private void addLayer(Long stockItemId, double quantity, double unitCost, LocalDate date) {
+        CostLayer layer = new CostLayer();
+        layer.setStockItemId(stockItemId);
+        layer.setReceivedDate(date != null ? date : LocalDate.now());
+        layer.setOriginalQuantity(quantity);
+        layer.setRemainingQuantity(quantity);
+        layer.setUnitCost(unitCost);
+        costLayerRepository.save(layer);
+    }
+
+    private static double valueOf(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
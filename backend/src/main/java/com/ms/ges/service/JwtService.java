@@ -1,5 +1,6 @@
 package com.ms.ges.service;
 
+import com.ms.ges.model.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -23,17 +24,29 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}")
     private long jwtExpiration;
 
+    public static final String BRANCH_CLAIM = "branch";
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
+    // Tokens issued before branches existed belong to the default branch
+    public String extractBranch(String token) {
+        String branch = extractClaim(token, claims -> claims.get(BRANCH_CLAIM, String.class));
+        return branch != null ? branch : BranchContext.DEFAULT_BRANCH;
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getBranch() != null) {
+            claims.put(BRANCH_CLAIM, user.getBranch());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(
@@ -0,0 +1,76 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The open lots of one stock item, earliest expiry first, then oldest receipt. Lots without an
+ * expiry date come last. Planning a draw walks the head of the queue without changing it; the
+ * draw is applied once the database has taken it.
+ */
+public class LotQueue {
+
+    public record Lot(long id, LocalDate expiryDate, LocalDate receivedDate, long remainingMilli) {
+    }
+
+    public record Draw(long lotId, LocalDate expiryDate, long quantityMilli) {
+    }
+
+    static final Comparator<Lot> FIRST_EXPIRED_FIRST_OUT = Comparator
+            .comparing(Lot::expiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Lot::receivedDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingLong(Lot::id);
+
+    private final TreeSet<Lot> lots = new TreeSet<>(FIRST_EXPIRED_FIRST_OUT);
+    private final Map<Long, Lot> lotsById = new HashMap<>();
+
+    /**
+     * Adds a lot, unless it is already queued.
+     */
+    public synchronized void add(Lot lot) {
+        if (lot.remainingMilli() > 0 && lotsById.putIfAbsent(lot.id(), lot) == null) {
+            lots.add(lot);
+        }
+    }
+
+    /**
+     * Returns the draws that take up to {@code quantityMilli} from the earliest-expiring lots.
+     * Less is returned when the lots hold less.
+     */
+    public synchronized List<Draw> plan(long quantityMilli) {
+        List<Draw> draws = new ArrayList<>();
+        long outstanding = quantityMilli;
+        for (Lot lot : lots) {
+            if (outstanding <= 0) {
+                break;
+            }
+            long taken = Math.min(outstanding, lot.remainingMilli());
+            draws.add(new Draw(lot.id(), lot.expiryDate(), taken));
+            outstanding -= taken;
+        }
+        return draws;
+    }
+
+    public synchronized void apply(List<Draw> draws) {
+        for (Draw draw : draws) {
+            Lot lot = lotsById.get(draw.lotId());
+            if (lot == null) {
+                continue;
+            }
+            lots.remove(lot);
+            long remaining = lot.remainingMilli() - draw.quantityMilli();
+            if (remaining > 0) {
+                Lot drawn = new Lot(lot.id(), lot.expiryDate(), lot.receivedDate(), remaining);
+                lots.add(drawn);
+                lotsById.put(lot.id(), drawn);
+            } else {
+                lotsById.remove(lot.id());
+            }
+        }
+    }
+}
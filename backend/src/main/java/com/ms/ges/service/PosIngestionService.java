@@ -0,0 +1,502 @@
+package com.ms.ges.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.exception.ServiceUnavailableException;
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.PosIngestState;
+import com.ms.ges.repository.PosIngestStateRepository;
+import com.ms.ges.service.SaleService.UsageLine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes point-of-sale events off the request thread. Accepted events are appended to a local log
+ * and synced before the request is acknowledged, then queued for a single consumer thread. Every
+ * {@code pos.flush-interval} the consumer drains up to {@code pos.batch-size} events, coalesces
+ * them into one decrement per stock item and one usage per stock item, day and user, and applies
+ * them in one transaction per branch together with the branch's applied-through cursor.
+ * <p>
+ * The queue holds at most {@code pos.queue-capacity} events that are not yet applied; beyond that
+ * requests are rejected with 503. On startup the log is replayed from the cursors, so events
+ * acknowledged before a crash are applied exactly once. Once every accepted event is applied and
+ * the queue is idle, the log is truncated.
+ * <p>
+ * Failures the database reports as transient are retried with backoff. An event that fails any
+ * other way, such as one naming a user that was deleted since, would fail the same way forever, so
+ * it is written to {@code dead-letter.log} next to the log and the cursor moves past it. Replay
+ * tries at most {@code pos.replay-attempts} times and leaves the rest to the consumer, so startup
+ * does not wait on an unreachable database.
+ */
+@Slf4j
+@Service
+public class PosIngestionService {
+
+    private static final String LOG_FILE = "ingest.log";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+    private static final long MAX_RETRY_DELAY_NANOS = Duration.ofSeconds(30).toNanos();
+
+    /**
+     * A sale of {@code quantity} portions of a recipe, or a direct use of {@code quantity} of a
+     * stock item. Exactly one of {@code recipeId} and {@code stockItemId} is set.
+     */
+    public record PosEvent(long seq, String branch, Long userId, Long recipeId, Long stockItemId,
+                           double quantity, LocalDate date) {
+
+        PosEvent withSeq(long seq) {
+            return new PosEvent(seq, branch, userId, recipeId, stockItemId, quantity, date);
+        }
+    }
+
+    private record UsageKey(long stockItemId, LocalDate date, Long userId) {
+    }
+
+    private record LogContents(List<PosEvent> events, long completeLength) {
+    }
+
+    // Events handed over from replay hold permits they never acquired, so the count can go below zero
+    private static final class Capacity extends Semaphore {
+
+        Capacity(int permits) {
+            super(permits);
+        }
+
+        void reduce(int permits) {
+            reducePermits(permits);
+        }
+    }
+
+    private final SaleService saleService;
+    private final PosIngestStateRepository stateRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReportCache reportCache;
+    private final BusinessMetrics businessMetrics;
+    private final Branches branches;
+    private final ObjectMapper objectMapper;
+    private final Path logPath;
+    private final Path deadLetterPath;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int replayAttempts;
+
+    private final LinkedBlockingQueue<PosEvent> queue = new LinkedBlockingQueue<>();
+    // One permit per event that may be accepted; released once the event is applied
+    private final Capacity capacity;
+    // Guards the log file and the sequence, so queue order is log order
+    private final Object logLock = new Object();
+    private FileChannel logChannel;
+    private long nextSeq = 1;
+
+    private final AtomicLong lastAppliedSeq = new AtomicLong();
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter applied;
+    private final Counter failed;
+    private final Counter deadLettered;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread consumer;
+
+    public PosIngestionService(
+            SaleService saleService,
+            PosIngestStateRepository stateRepository,
+            TransactionTemplate transactionTemplate,
+            ReportCache reportCache,
+            BusinessMetrics businessMetrics,
+            Branches branches,
+            ObjectMapper objectMapper,
+            MeterRegistry registry,
+            @Value("${pos.log-directory:data/pos}") String logDirectory,
+            @Value("${pos.queue-capacity:10000}") int queueCapacity,
+            @Value("${pos.batch-size:500}") int batchSize,
+            @Value("${pos.flush-interval:200ms}") Duration flushInterval,
+            @Value("${pos.replay-attempts:5}") int replayAttempts
+    ) {
+        this.saleService = saleService;
+        this.stateRepository = stateRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.reportCache = reportCache;
+        this.businessMetrics = businessMetrics;
+        this.branches = branches;
+        this.objectMapper = objectMapper;
+        this.logPath = Paths.get(logDirectory).resolve(LOG_FILE);
+        this.deadLetterPath = Paths.get(logDirectory).resolve(DEAD_LETTER_FILE);
+        this.queueCapacity = queueCapacity;
+        this.capacity = new Capacity(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.replayAttempts = replayAttempts;
+
+        Gauge.builder("ges.pos.queue.depth", this, PosIngestionService::queueDepth)
+                .description("POS events accepted but not yet applied")
+                .register(registry);
+        accepted = Counter.builder("ges.pos.accepted").description("POS events accepted").register(registry);
+        rejected = Counter.builder("ges.pos.rejected").description("POS events rejected because the queue was full").register(registry);
+        applied = Counter.builder("ges.pos.applied").description("POS events applied to stock").register(registry);
+        failed = Counter.builder("ges.pos.failed").description("Attempts to apply POS events that failed").register(registry);
+        deadLettered = Counter.builder("ges.pos.dead-lettered").description("POS events that could never be applied and were skipped").register(registry);
+    }
+
+    public int queueDepth() {
+        return queueCapacity - capacity.availablePermits();
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Logs and queues the events, returning them with their sequence numbers. Returns only once the
+     * events are synced to the log. Rejects all of them if the queue cannot take all of them.
+     */
+    public List<PosEvent> accept(List<PosEvent> events) {
+        if (!accepting) {
+            throw new ServiceUnavailableException("POS ingestion is starting, please retry");
+        }
+        if (!capacity.tryAcquire(events.size())) {
+            rejected.increment(events.size());
+            throw new ServiceUnavailableException("POS queue is full, please retry");
+        }
+        List<PosEvent> logged = new ArrayList<>(events.size());
+        try {
+            synchronized (logLock) {
+                long seq = nextSeq;
+                StringBuilder lines = new StringBuilder();
+                for (PosEvent event : events) {
+                    PosEvent withSeq = event.withSeq(seq++);
+                    lines.append(objectMapper.writeValueAsString(withSeq)).append('\n');
+                    logged.add(withSeq);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    logChannel.write(buffer);
+                }
+                logChannel.force(false);
+                nextSeq = seq;
+                queue.addAll(logged);
+            }
+        } catch (IOException e) {
+            capacity.release(events.size());
+            log.error("Could not append {} POS events to {}", events.size(), logPath, e);
+            throw new ServiceUnavailableException("POS events could not be stored, please retry");
+        }
+        accepted.increment(events.size());
+        return logged;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("accepting", accepting);
+        status.put("queueDepth", queueDepth());
+        status.put("queueCapacity", queueCapacity);
+        status.put("lastAppliedSeq", lastAppliedSeq.get());
+        status.put("deadLettered", (long) deadLettered.count());
+        status.put("appliedThroughSeq", stateRepository.findFirstByOrderByIdAsc()
+                .map(PosIngestState::getAppliedThroughSeq)
+                .orElse(0L));
+        return status;
+    }
+
+    /**
+     * Applies whatever the log holds beyond each branch's cursor, then starts accepting events.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        Files.createDirectories(logPath.getParent());
+        LogContents contents = readLog();
+        List<PosEvent> pending = contents.events();
+
+        AtomicLong highest = new AtomicLong();
+        branches.forEach(branch -> highest.accumulateAndGet(appliedThroughSeq(), Math::max));
+        pending.forEach(event -> highest.accumulateAndGet(event.seq(), Math::max));
+        nextSeq = highest.get() + 1;
+
+        running = true;
+        List<PosEvent> unapplied = new ArrayList<>();
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} POS events from {}", pending.size(), logPath);
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                List<PosEvent> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+                // Once replay gives up, later events must wait too, or their cursor would pass the earlier ones
+                if (unapplied.isEmpty()) {
+                    unapplied.addAll(apply(batch, false, replayAttempts));
+                } else {
+                    unapplied.addAll(batch);
+                }
+            }
+        }
+
+        logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Also drops a line torn by a crash, which the next append would otherwise run into
+        logChannel.truncate(unapplied.isEmpty() ? 0 : contents.completeLength());
+        if (!unapplied.isEmpty()) {
+            log.warn("Handing {} POS events that could not be replayed yet to the consumer", unapplied.size());
+            capacity.reduce(unapplied.size());
+            queue.addAll(unapplied);
+        }
+        consumer = new Thread(this::consumeLoop, "pos-ingest-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+        accepting = true;
+    }
+
+    // Events still queued at shutdown stay in the log and are replayed on the next start
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        accepting = false;
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer.join(Duration.ofSeconds(10).toMillis());
+        }
+        synchronized (logLock) {
+            if (logChannel != null) {
+                logChannel.close();
+            }
+        }
+    }
+
+    private LogContents readLog() throws IOException {
+        List<PosEvent> events = new ArrayList<>();
+        if (!Files.exists(logPath)) {
+            return new LogContents(events, 0);
+        }
+        byte[] bytes = Files.readAllBytes(logPath);
+        int completeLength = bytes.length;
+        while (completeLength > 0 && bytes[completeLength - 1] != '\n') {
+            completeLength--;
+        }
+        if (completeLength < bytes.length) {
+            // Only the last append can be incomplete, and it was never acknowledged
+            log.warn("Ignoring {} bytes torn from the end of {}", bytes.length - completeLength, logPath);
+        }
+        for (String line : new String(bytes, 0, completeLength, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                events.add(objectMapper.readValue(line, PosEvent.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Ignoring unreadable POS log line after seq {}", events.isEmpty() ? 0 : events.get(events.size() - 1).seq());
+            }
+        }
+        return new LogContents(events, completeLength);
+    }
+
+    private void consumeLoop() {
+        List<PosEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            // A full batch is applied right away, a partial one waits for the flush interval
+            if (queue.size() < batchSize) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                truncateIfIdle();
+                continue;
+            }
+            apply(batch, true, Integer.MAX_VALUE);
+            batch.clear();
+        }
+    }
+
+    // Returns the events left unapplied because transient failures outlasted maxAttempts or the service stopped
+    private List<PosEvent> apply(List<PosEvent> batch, boolean releasePermits, int maxAttempts) {
+        List<PosEvent> unapplied = new ArrayList<>();
+        Map<String, List<PosEvent>> byBranch = batch.stream()
+                .collect(Collectors.groupingBy(PosEvent::branch, LinkedHashMap::new, Collectors.toList()));
+        byBranch.forEach((branch, events) -> {
+            int done = applyWithRetry(branch, events, maxAttempts);
+            unapplied.addAll(events.subList(done, events.size()));
+            if (done > 0) {
+                lastAppliedSeq.accumulateAndGet(events.get(done - 1).seq(), Math::max);
+                if (releasePermits) {
+                    capacity.release(done);
+                }
+            }
+        });
+        return unapplied;
+    }
+
+    // Returns how many of the events, from the front, were applied or dead-lettered
+    private int applyWithRetry(String branch, List<PosEvent> events, int maxAttempts) {
+        long retryDelay = flushIntervalNanos;
+        boolean skip = false;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (skip) {
+                    BranchContext.run(branch, () -> skipThrough(events.get(0).seq()));
+                } else {
+                    BranchContext.run(branch, () -> applyBranch(events));
+                    applied.increment(events.size());
+                }
+                return events.size();
+            } catch (RuntimeException e) {
+                failed.increment();
+                if (!skip && !isTransient(e)) {
+                    if (events.size() > 1) {
+                        // One at a time, so a single bad event does not hold back the rest
+                        log.warn("Could not apply {} POS events for branch {}, applying them one at a time", events.size(), branch, e);
+                        for (int i = 0; i < events.size(); i++) {
+                            if (applyWithRetry(branch, events.subList(i, i + 1), maxAttempts) == 0) {
+                                return i;
+                            }
+                        }
+                        return events.size();
+                    }
+                    deadLetter(events.get(0), e);
+                    skip = true;
+                    continue;
+                }
+                if (attempt >= maxAttempts || !running) {
+                    // Still in the log; applied by the consumer or on the next start
+                    log.error("Giving up on {} POS events for branch {} for now", events.size(), branch, e);
+                    return 0;
+                }
+                log.error("Could not apply {} POS events for branch {}, retrying", events.size(), branch, e);
+                LockSupport.parkNanos(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_NANOS);
+            }
+        }
+    }
+
+    // The database was unreachable, busy or locked; anything else fails the same way on every attempt
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void deadLetter(PosEvent event, RuntimeException cause) {
+        String reason = NestedExceptionUtils.getMostSpecificCause(cause).getMessage();
+        deadLettered.increment();
+        log.error("Skipping POS event {} for branch {} that cannot be applied: {}", event.seq(), event.branch(), reason);
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("at", Instant.now().toString());
+        entry.put("reason", reason);
+        entry.put("event", event);
+        try {
+            Files.writeString(deadLetterPath, objectMapper.writeValueAsString(entry) + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            log.error("Could not write POS event {} to {}", event.seq(), deadLetterPath, e);
+        }
+    }
+
+    private void skipThrough(long seq) {
+        transactionTemplate.executeWithoutResult(status -> {
+            PosIngestState state = stateRepository.findFirstByOrderByIdAsc().orElseGet(PosIngestState::new);
+            if (state.getAppliedThroughSeq() < seq) {
+                state.setAppliedThroughSeq(seq);
+                stateRepository.save(state);
+            }
+        });
+    }
+
+    private void applyBranch(List<PosEvent> events) {
+        Set<LocalDate> dates = new HashSet<>();
+        Integer usages = transactionTemplate.execute(status -> {
+            PosIngestState state = stateRepository.findFirstByOrderByIdAsc().orElseGet(PosIngestState::new);
+            long appliedThrough = state.getAppliedThroughSeq();
+
+            Map<UsageKey, Double> coalesced = new LinkedHashMap<>();
+            Map<Long, Double> totals = new HashMap<>();
+            for (PosEvent event : events) {
+                if (event.seq() <= appliedThrough) {
+                    continue;
+                }
+                appliedThrough = event.seq();
+                if (event.stockItemId() != null) {
+                    totals.put(event.stockItemId(), event.quantity());
+                } else if (!saleService.expand(event.recipeId(), event.quantity(), totals)) {
+                    log.warn("Skipping POS event {} for unknown recipe {}", event.seq(), event.recipeId());
+                    continue;
+                }
+                totals.forEach((stockItemId, quantity) ->
+                        coalesced.merge(new UsageKey(stockItemId, event.date(), event.userId()), quantity, Double::sum));
+                totals.clear();
+                dates.add(event.date());
+            }
+
+            List<UsageLine> lines = new ArrayList<>(coalesced.size());
+            coalesced.forEach((key, quantity) -> {
+                long quantityMilli = FixedPoint.toMilli(quantity);
+                if (quantityMilli > 0) {
+                    lines.add(new UsageLine(key.stockItemId(), quantityMilli, key.date(), key.userId()));
+                }
+            });
+            // The sales already happened, so stock that runs short stops at zero instead of rejecting them
+            saleService.consume(lines, true);
+
+            state.setAppliedThroughSeq(appliedThrough);
+            stateRepository.save(state);
+            return lines.size();
+        });
+        dates.forEach(reportCache::evict);
+        businessMetrics.usagesRecorded(usages != null ? usages : 0);
+    }
+
+    private long appliedThroughSeq() {
+        return transactionTemplate.execute(status -> stateRepository.findFirstByOrderByIdAsc()
+                .map(PosIngestState::getAppliedThroughSeq)
+                .orElse(0L));
+    }
+
+    private void truncateIfIdle() {
+        synchronized (logLock) {
+            // Permits are taken before the log is written and returned after the events are applied
+            if (capacity.availablePermits() != queueCapacity) {
+                return;
+            }
+            try {
+                if (logChannel.size() > 0) {
+                    logChannel.truncate(0);
+                }
+            } catch (IOException e) {
+                log.warn("Could not truncate {}", logPath, e);
+            }
+        }
+    }
+}
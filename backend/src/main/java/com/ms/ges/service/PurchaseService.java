@@ -0,0 +1,160 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.Purchase;
+import com.ms.ges.model.PurchaseItem;
+import com.ms.ges.model.StockAuditAction;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.SyncEntity;
+import com.ms.ges.repository.PurchaseRepository;
+import com.ms.ges.repository.QuerySpecifications;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.SupplierRepository;
+import com.ms.ges.service.StockQuantityService.Change;
+
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Purchases and the stock they receive. Recording a purchase is one transaction, so a rejected
+ * item leaves neither the purchase nor the quantities of the items before it behind.
+ */
+@Service
+@RequiredArgsConstructor
+public class PurchaseService {
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "date", "supplierId");
+
+    private final PurchaseRepository purchaseRepository;
+    private final StockRepository stockRepository;
+    private final SupplierRepository supplierRepository;
+    private final StockQuantityService stockQuantityService;
+    private final InventoryValuationService inventoryValuationService;
+    private final SyncService syncService;
+    private final StockAuditLog stockAuditLog;
+    private final StockLotService stockLotService;
+    private final ReportCache reportCache;
+
+    // Responses are written after the transaction ends, so the items they show are loaded here
+    @Transactional(readOnly = true)
+    public List<Purchase> findAll(Long supplierId, Long stockItemId, LocalDate from, LocalDate to, Sort sort) {
+        Specification<Purchase> spec = Specification.allOf(
+                QuerySpecifications.equalTo("supplierId", supplierId),
+                stockItemId != null ? containsStockItem(stockItemId) : null,
+                QuerySpecifications.dateInRange("date", from, to));
+        List<Purchase> purchases = purchaseRepository.findAll(spec, QuerySpecifications.validateSort(sort, SORTABLE_FIELDS));
+        purchases.forEach(purchase -> Hibernate.initialize(purchase.getItems()));
+        return purchases;
+    }
+
+    private static Specification<Purchase> containsStockItem(Long stockItemId) {
+        return (root, query, cb) -> {
+            Subquery<Long> items = query.subquery(Long.class);
+            Root<PurchaseItem> item = items.from(PurchaseItem.class);
+            items.select(item.get("id")).where(
+                    cb.equal(item.get("purchase"), root),
+                    cb.equal(item.get("stockItemId"), stockItemId));
+            return cb.exists(items);
+        };
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Purchase> findById(Long id) {
+        Optional<Purchase> purchase = purchaseRepository.findById(id);
+        purchase.ifPresent(p -> Hibernate.initialize(p.getItems()));
+        return purchase;
+    }
+
+    @Transactional
+    public Purchase record(Purchase purchase) {
+        // Set current date if not provided
+        if (purchase.getDate() == null) {
+            purchase.setDate(LocalDate.now());
+        }
+
+        // Validate supplier exists
+        Long supplierId = purchase.getSupplierId();
+        if (supplierId == null || !supplierRepository.existsById(supplierId)) {
+            throw new BadRequestException("Invalid or not found supplier ID: " + supplierId);
+        }
+
+        if (purchase.getItems() == null || purchase.getItems().isEmpty()) {
+            throw new BadRequestException("At least one item is required");
+        }
+
+        // Process items and calculate total without duplicating them
+        long totalAmountCents = 0;
+        Map<Long, Double> quantitiesBefore = new LinkedHashMap<>();
+        Map<Long, Double> quantitiesAfter = new HashMap<>();
+        for (PurchaseItem item : purchase.getItems()) {
+            Long stockItemId = item.getStockItemId();
+            if (stockItemId == null) {
+                throw new BadRequestException("Stock item ID cannot be null");
+            }
+            StockItem stockItem = stockRepository.findById(stockItemId)
+                    .orElseThrow(() -> new BadRequestException("Stock item not found with ID: " + stockItemId));
+
+            if (item.getQuantityMilli() <= 0) {
+                throw new BadRequestException("Item quantity must be greater than 0");
+            }
+            if (item.getPriceCents() <= 0) {
+                throw new BadRequestException("Item price must be greater than 0");
+            }
+            if (item.getExpiryDate() != null && item.getExpiryDate().isBefore(purchase.getDate())) {
+                throw new BadRequestException("Expiry date cannot be before the purchase date");
+            }
+
+            totalAmountCents += FixedPoint.amountCents(item.getQuantityMilli(), item.getPriceCents());
+
+            Change change = stockQuantityService.adjust(stockItemId, item.getQuantityMilli())
+                    .orElseThrow(() -> new BadRequestException("Stock item not found with ID: " + stockItemId));
+            inventoryValuationService.recordReceipt(stockItem, item.getQuantity(), item.getPrice(), purchase.getDate());
+            quantitiesBefore.putIfAbsent(stockItemId, change.quantityBefore());
+            quantitiesAfter.put(stockItemId, change.quantityAfter());
+
+            // Set the purchase reference to maintain bidirectional relationship
+            item.setPurchase(purchase);
+        }
+
+        purchase.setTotalAmountCents(totalAmountCents);
+        Purchase savedPurchase = purchaseRepository.save(purchase);
+        for (PurchaseItem item : savedPurchase.getItems()) {
+            stockLotService.receive(item.getStockItemId(), item.getQuantityMilli(), savedPurchase.getDate(),
+                    item.getExpiryDate(), savedPurchase.getId());
+        }
+        quantitiesBefore.forEach((stockItemId, quantityBefore) -> stockAuditLog.record(StockAuditAction.PURCHASE,
+                stockItemId, quantityBefore, quantitiesAfter.get(stockItemId), savedPurchase.getId()));
+        reportCache.evict(savedPurchase.getDate());
+        return savedPurchase;
+    }
+
+    /**
+     * Returns the deleted purchase, or empty when there is no such purchase.
+     */
+    @Transactional
+    public Optional<Purchase> delete(Long id) {
+        Optional<Purchase> purchase = purchaseRepository.findById(id);
+        purchase.ifPresent(p -> {
+            purchaseRepository.delete(p);
+            syncService.recordDeletion(SyncEntity.PURCHASE, id);
+            reportCache.evict(p.getDate());
+        });
+        return purchase;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ms.ges.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ms.ges.model.Role;
+
+/**
+ * Token buckets per user and route. Each bucket is a single {@code AtomicLong} holding the time
+ * at which it will be full again (the GCRA form of a token bucket), so taking a token is one CAS
+ * and there is no lock on the request path.
+ */
+@Service
+public class RateLimiter {
+
+    private record Limit(long intervalNanos, long burstNanos) {
+        static Limit of(int capacity, double refillPerSecond) {
+            long interval = (long) (1_000_000_000L / refillPerSecond);
+            return new Limit(interval, interval * capacity);
+        }
+    }
+
+    private final Map<Role, Limit> limits = new EnumMap<>(Role.class);
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(
+            @Value("${rate-limit.admin.capacity:200}") int adminCapacity,
+            @Value("${rate-limit.admin.refill-per-second:50}") double adminRefill,
+            @Value("${rate-limit.manager.capacity:100}") int managerCapacity,
+            @Value("${rate-limit.manager.refill-per-second:20}") double managerRefill,
+            @Value("${rate-limit.staff.capacity:60}") int staffCapacity,
+            @Value("${rate-limit.staff.refill-per-second:10}") double staffRefill
+    ) {
+        limits.put(Role.ADMIN, Limit.of(adminCapacity, adminRefill));
+        limits.put(Role.MANAGER, Limit.of(managerCapacity, managerRefill));
+        limits.put(Role.STAFF, Limit.of(staffCapacity, staffRefill));
+    }
+
+    /**
+     * Takes one token from the bucket of {@code username} on {@code route}. Returns 0 when the
+     * request may proceed, otherwise the nanoseconds until a token becomes available.
+     */
+    public long tryAcquire(String username, Role role, String route) {
+        Limit limit = limits.get(role);
+        String key = username + ' ' + route;
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            // nanoTime has an arbitrary origin and may be negative, so a new bucket is full as of now
+            // rather than as of zero
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now - limit.burstNanos()));
+        }
+
+        while (true) {
+            long fullAt = bucket.get();
+            // Compared by difference, which stays right when nanoTime wraps
+            long next = (fullAt - now > 0 ? fullAt : now) + limit.intervalNanos();
+            long excess = next - now - limit.burstNanos();
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // A bucket that has refilled completely behaves exactly like a new one, so it can be dropped
+    @Scheduled(fixedDelayString = "${rate-limit.cleanup-interval:60000}")
+    public void evictFullBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
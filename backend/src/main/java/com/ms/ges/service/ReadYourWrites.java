@@ -0,0 +1,44 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers when each user last wrote, so that their reads stay on the primary until the
+ * replicas have had time to catch up with that write.
+ */
+@Service
+public class ReadYourWrites {
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    public ReadYourWrites(@Value("${replicas.read-your-writes-window:5s}") Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    public void recordWrite(String user) {
+        long now = System.nanoTime();
+        lastWrites.put(user, now);
+        // Users who stop writing would otherwise stay in the map for good
+        if (lastWrites.size() > 1024) {
+            lastWrites.values().removeIf(time -> now - time > windowNanos);
+        }
+    }
+
+    public boolean wroteRecently(String user) {
+        Long lastWrite = lastWrites.get(user);
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite <= windowNanos) {
+            return true;
+        }
+        lastWrites.remove(user, lastWrite);
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ms.ges.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Service;
+
+import com.ms.ges.model.Recipe;
+import com.ms.ges.model.RecipeIngredient;
+import com.ms.ges.repository.RecipeRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Recipes compiled for expanding sales. Each recipe is held as parallel primitive arrays of
+ * stock item ids and quantities per portion, and recipes are found by binary search over a
+ * sorted {@code long[]} of ids, so expanding a sale walks arrays rather than entity graphs. A branch's
+ * snapshot is loaded with one query on first use and dropped whenever one of its recipes changes.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecipeCatalog {
+
+    private final RecipeRepository recipeRepository;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public record CompiledRecipe(long id, String name, long[] stockItemIds, double[] quantities) {
+    }
+
+    private record Snapshot(long[] ids, CompiledRecipe[] recipes) {
+        CompiledRecipe find(long id) {
+            int index = Arrays.binarySearch(ids, id);
+            return index >= 0 ? recipes[index] : null;
+        }
+    }
+
+    /**
+     * Returns the recipe with the given id in the current branch, or {@code null}.
+     */
+    public CompiledRecipe find(long recipeId) {
+        // Snapshots last until the next invalidation, so they are never read from a lagging replica
+        return snapshots.computeIfAbsent(BranchContext.current(), branch -> ReplicaContext.onPrimary(this::load)).find(recipeId);
+    }
+
+    public void invalidate() {
+        snapshots.remove(BranchContext.current());
+    }
+
+    private Snapshot load() {
+        // Ordered by id, so the ids array is sorted for binary search
+        List<Recipe> recipes = recipeRepository.findAllWithIngredients();
+        long[] ids = new long[recipes.size()];
+        CompiledRecipe[] compiled = new CompiledRecipe[recipes.size()];
+        for (int i = 0; i < recipes.size(); i++) {
+            Recipe recipe = recipes.get(i);
+            List<RecipeIngredient> ingredients = recipe.getIngredients();
+            long[] stockItemIds = new long[ingredients.size()];
+            double[] quantities = new double[ingredients.size()];
+            for (int j = 0; j < ingredients.size(); j++) {
+                stockItemIds[j] = ingredients.get(j).getStockItemId();
+                quantities[j] = ingredients.get(j).getQuantity();
+            }
+            ids[i] = recipe.getId();
+            compiled[i] = new CompiledRecipe(recipe.getId(), recipe.getName(), stockItemIds, quantities);
+        }
+        return new Snapshot(ids, compiled);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ms.ges.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.exception.ResourceNotFoundException;
+import com.ms.ges.model.Recipe;
+import com.ms.ges.model.RecipeIngredient;
+import com.ms.ges.repository.RecipeRepository;
+import com.ms.ges.repository.StockRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Recipes and their ingredients. The compiled {@link RecipeCatalog} is left to the caller, to
+ * invalidate once the transaction has committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecipeService {
+
+    private final RecipeRepository recipeRepository;
+    private final StockRepository stockRepository;
+
+    @Transactional(readOnly = true)
+    public List<Recipe> findAll() {
+        return recipeRepository.findAllWithIngredients();
+    }
+
+    // The response is written after the transaction ends, so the ingredients are loaded here
+    @Transactional(readOnly = true)
+    public Recipe findById(Long id) {
+        Recipe recipe = recipeRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + id));
+        Hibernate.initialize(recipe.getIngredients());
+        return recipe;
+    }
+
+    @Transactional
+    public Recipe create(Recipe recipe) {
+        if (recipeRepository.existsByName(recipe.getName())) {
+            throw new BadRequestException("A recipe named " + recipe.getName() + " already exists");
+        }
+        List<RecipeIngredient> ingredients = List.copyOf(recipe.getIngredients());
+        recipe.getIngredients().clear();
+        setIngredients(recipe, ingredients);
+        return recipeRepository.save(recipe);
+    }
+
+    @Transactional
+    public Recipe update(Long id, String ifMatch, Recipe recipeDetails) {
+        Recipe recipe = recipeRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + id));
+        EntityTags.check(ifMatch, recipe.getVersion());
+        if (!recipe.getName().equals(recipeDetails.getName()) && recipeRepository.existsByName(recipeDetails.getName())) {
+            throw new BadRequestException("A recipe named " + recipeDetails.getName() + " already exists");
+        }
+
+        recipe.setName(recipeDetails.getName());
+        recipe.getIngredients().clear();
+        setIngredients(recipe, recipeDetails.getIngredients());
+        return recipeRepository.saveAndFlush(recipe);
+    }
+
+    @Transactional
+    public void delete(Long id) {
+        Recipe recipe = recipeRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Recipe not found with id: " + id));
+        recipeRepository.delete(recipe);
+    }
+
+    private void setIngredients(Recipe recipe, List<RecipeIngredient> ingredients) {
+        Set<Long> stockItemIds = ingredients.stream()
+                .map(RecipeIngredient::getStockItemId)
+                .collect(Collectors.toSet());
+        if (stockItemIds.size() != ingredients.size()) {
+            throw new BadRequestException("Each stock item may appear only once in a recipe");
+        }
+        if (stockRepository.findAllById(stockItemIds).size() != stockItemIds.size()) {
+            throw new BadRequestException("Recipe refers to a stock item that does not exist");
+        }
+        for (RecipeIngredient ingredient : ingredients) {
+            ingredient.setId(null);
+            recipe.getIngredients().add(ingredient);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ms.ges.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Whether the current thread may read from a replica. Read-only transactions go to a replica
+ * unless the thread is pinned to the primary: write requests and requests from a user who wrote
+ * moments ago are pinned by the request filter, and anything that caches what it reads, or keeps a
+ * cursor into it, pins itself with {@link #onPrimary}, since a lagging replica would be remembered.
+ */
+public final class ReplicaContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReplicaContext() {
+    }
+
+    public static boolean primaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+
+    public static void set(boolean primaryRequired) {
+        PRIMARY.set(primaryRequired);
+    }
+
+    public static void clear() {
+        PRIMARY.remove();
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        return call(true, action);
+    }
+
+    public static void run(boolean primaryRequired, Runnable action) {
+        call(primaryRequired, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(boolean primaryRequired, Supplier<T> action) {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(primaryRequired || Boolean.TRUE.equals(previous));
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                PRIMARY.set(previous);
+            } else {
+                PRIMARY.remove();
+            }
+        }
+    }
+}
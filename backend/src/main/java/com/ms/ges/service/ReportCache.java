@@ -0,0 +1,166 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Caches monthly report summaries. Closed months never expire and are only dropped when a
+ * purchase, expense or usage dated inside them is written; the current (and any future) month
+ * expires after a short TTL. Concurrent misses for the same month share one computation.
+ * Entries are per branch. Lookups are counted in {@code ges.report.cache.requests} by result,
+ * and computing a missing month is timed in {@code ges.report.cache.compute}.
+ */
+@Service
+public class ReportCache {
+
+    private final ReportService reportService;
+    private final long currentMonthTtlNanos;
+
+    private final Map<Key, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evictions;
+    private final Timer compute;
+
+    public ReportCache(
+            ReportService reportService,
+            MeterRegistry registry,
+            @Value("${reports.cache.current-month-ttl:30s}") Duration currentMonthTtl
+    ) {
+        this.reportService = reportService;
+        this.currentMonthTtlNanos = currentMonthTtl.toNanos();
+
+        Gauge.builder("ges.report.cache.size", entries, Map::size)
+                .description("Cached monthly summaries")
+                .register(registry);
+        hits = requests(registry, "hit");
+        coalesced = requests(registry, "coalesced");
+        misses = requests(registry, "miss");
+        evictions = Counter.builder("ges.report.cache.evictions")
+                .description("Cached monthly summaries dropped after a change in their month")
+                .register(registry);
+        compute = Timer.builder("ges.report.cache.compute")
+                .description("Time to compute a monthly summary that was not cached")
+                .register(registry);
+    }
+
+    // A coalesced lookup waited for a computation another caller had already started
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("ges.report.cache.requests")
+                .description("Monthly summary lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Key(String branch, YearMonth month) {
+    }
+
+    public Map<String, Object> monthlySummary(YearMonth month) {
+        Key key = new Key(BranchContext.current(), month);
+        while (true) {
+            long now = System.nanoTime();
+            CacheEntry existing = entries.get(key);
+            if (existing != null && !existing.isExpired(now)) {
+                if (existing.value.isDone()) {
+                    hits.increment();
+                } else {
+                    coalesced.increment();
+                }
+                return join(existing.value);
+            }
+
+            boolean closed = month.isBefore(YearMonth.now());
+            CacheEntry created = new CacheEntry(closed ? Long.MAX_VALUE : now + currentMonthTtlNanos);
+            boolean installed = existing == null
+                    ? entries.putIfAbsent(key, created) == null
+                    : entries.replace(key, existing, created);
+            if (!installed) {
+                continue;
+            }
+
+            misses.increment();
+            long start = System.nanoTime();
+            try {
+                // Closed months are kept for good, so they are never read from a lagging replica
+                created.value.complete(ReplicaContext.onPrimary(() -> reportService.monthlySummary(month)));
+            } catch (RuntimeException e) {
+                entries.remove(key, created);
+                created.value.completeExceptionally(e);
+                throw e;
+            } finally {
+                compute.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            return created.value.join();
+        }
+    }
+
+    /**
+     * Drops the cached summary of the month containing {@code date}. Callers pass both the old
+     * and the new date when a record is moved between months. Inside a transaction the entry is
+     * dropped after commit, so a summary computed meanwhile from the old rows does not survive.
+     */
+    public void evict(LocalDate date) {
+        if (date == null) {
+            return;
+        }
+        Key key = new Key(BranchContext.current(), YearMonth.from(date));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        } else {
+            evict(key);
+        }
+    }
+
+    private void evict(Key key) {
+        if (entries.remove(key) != null) {
+            evictions.increment();
+        }
+    }
+
+    private static Map<String, Object> join(CompletableFuture<Map<String, Object>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static class CacheEntry {
+        final CompletableFuture<Map<String, Object>> value = new CompletableFuture<>();
+        final long expiresAtNanos;
+
+        CacheEntry(long expiresAtNanos) {
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAtNanos != Long.MAX_VALUE && now - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ms.ges.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ms.ges.model.ReportGrouping;
+import com.ms.ges.model.ReportType;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+public class ReportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String id;
+    private final String branch;
+    private final String key;
+    private final ReportType type;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final ReportGrouping grouping;
+    private final Instant submittedAt = Instant.now();
+
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+    private volatile int progress;
+    private volatile Map<String, Object> result;
+    private volatile String error;
+    private volatile Instant completedAt;
+
+    @Setter
+    private volatile Future<?> future;
+
+    public ReportJob(String id, String branch, String key, ReportType type, LocalDate from, LocalDate to,
+                     ReportGrouping grouping) {
+        this.id = id;
+        this.branch = branch;
+        this.key = key;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.grouping = grouping;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    boolean markRunning() {
+        return status.compareAndSet(Status.QUEUED, Status.RUNNING);
+    }
+
+    boolean complete(Map<String, Object> result) {
+        this.result = result;
+        return finish(Status.RUNNING, Status.COMPLETED);
+    }
+
+    boolean fail(String error) {
+        this.error = error;
+        return finish(Status.RUNNING, Status.FAILED);
+    }
+
+    boolean cancel() {
+        return finish(Status.QUEUED, Status.CANCELLED) || finish(Status.RUNNING, Status.CANCELLED);
+    }
+
+    private boolean finish(Status expected, Status next) {
+        if (status.compareAndSet(expected, next)) {
+            completedAt = Instant.now();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isCancelled() {
+        return getStatus() == Status.CANCELLED;
+    }
+
+    public boolean isFinished() {
+        return completedAt != null;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", id);
+        view.put("type", type);
+        view.put("from", from);
+        view.put("to", to);
+        view.put("grouping", grouping);
+        view.put("status", getStatus());
+        view.put("progress", progress);
+        view.put("submittedAt", submittedAt);
+        view.put("completedAt", completedAt);
+        if (getStatus() == Status.COMPLETED) {
+            view.put("result", result);
+        }
+        if (getStatus() == Status.FAILED) {
+            view.put("error", error);
+        }
+        return view;
+    }
+}
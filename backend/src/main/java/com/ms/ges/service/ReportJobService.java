@@ -0,0 +1,146 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ms.ges.exception.ServiceUnavailableException;
+import com.ms.ges.model.ReportGrouping;
+import com.ms.ges.model.ReportType;
+
+import jakarta.annotation.PreDestroy;
+
+@Service
+public class ReportJobService {
+
+    private final ReportService reportService;
+    private final ThreadPoolExecutor executor;
+    private final Duration resultTtl;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> jobsByKey = new ConcurrentHashMap<>();
+
+    public ReportJobService(
+            ReportService reportService,
+            @Value("${reports.jobs.pool-size:2}") int poolSize,
+            @Value("${reports.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${reports.jobs.result-ttl:30m}") Duration resultTtl
+    ) {
+        this.reportService = reportService;
+        this.resultTtl = resultTtl;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    public ReportJob submit(ReportType type, LocalDate from, LocalDate to, ReportGrouping grouping) {
+        String branch = BranchContext.current();
+        boolean primaryRequired = ReplicaContext.primaryRequired();
+        String key = branch + "|" + type + "|" + from + "|" + to + "|" + grouping;
+        ReportJob candidate = new ReportJob(UUID.randomUUID().toString(), branch, key, type, from, to, grouping);
+
+        // Identical submissions share the queued, running or still-retained job
+        ReportJob job = jobsByKey.compute(key, (k, existing) ->
+                existing != null && isReusable(existing) ? existing : candidate);
+        if (job != candidate) {
+            return job;
+        }
+
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> BranchContext.run(job.getBranch(),
+                    () -> ReplicaContext.run(primaryRequired, () -> run(job)))));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            jobsByKey.remove(key, job);
+            throw new ServiceUnavailableException("Report queue is full, please try again later");
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id))
+                .filter(job -> job.getBranch().equals(BranchContext.current()));
+    }
+
+    public Optional<ReportJob> cancel(String id) {
+        ReportJob job = find(id).orElse(null);
+        if (job == null) {
+            return Optional.empty();
+        }
+        // A running job sees the cancellation between months; interrupting it could abort a statement
+        // halfway and leave its pooled connection unusable
+        if (job.cancel()) {
+            if (job.getFuture() != null) {
+                job.getFuture().cancel(false);
+            }
+            jobsByKey.remove(job.getKey(), job);
+        }
+        return Optional.of(job);
+    }
+
+    private void run(ReportJob job) {
+        if (!job.markRunning()) {
+            return;
+        }
+        try {
+            job.complete(reportService.buildReport(
+                    job.getType(), job.getFrom(), job.getTo(), job.getGrouping(), job::setProgress, job::isCancelled));
+        } catch (Exception e) {
+            // A cancelled job has already left RUNNING, so this is a no-op for it
+            if (job.fail(e.getMessage())) {
+                jobsByKey.remove(job.getKey(), job);
+            }
+        }
+    }
+
+    private boolean isReusable(ReportJob job) {
+        return switch (job.getStatus()) {
+            case QUEUED, RUNNING -> true;
+            case COMPLETED -> !isExpired(job, Instant.now());
+            default -> false;
+        };
+    }
+
+    private boolean isExpired(ReportJob job, Instant now) {
+        return job.isFinished() && job.getCompletedAt().plus(resultTtl).isBefore(now);
+    }
+
+    @Scheduled(fixedDelayString = "${reports.jobs.eviction-interval:60000}")
+    public void evictExpiredJobs() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> {
+            if (isExpired(job, now)) {
+                jobsByKey.remove(job.getKey(), job);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,184 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.ReportGrouping;
+import com.ms.ges.model.ReportType;
+import com.ms.ges.repository.ExpenseRepository;
+import com.ms.ges.repository.PurchaseRepository;
+import com.ms.ges.repository.UsageRepository;
+import com.ms.ges.repository.UsageRepository.StockItemUsageTotal;
+
+@Service
+public class ReportService {
+
+    private final PurchaseRepository purchaseRepository;
+    private final ExpenseRepository expenseRepository;
+    private final UsageRepository usageRepository;
+    private final TransactionTemplate monthTransaction;
+
+    public ReportService(
+            PurchaseRepository purchaseRepository,
+            ExpenseRepository expenseRepository,
+            UsageRepository usageRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${reports.jobs.month-timeout:60s}") Duration monthTimeout
+    ) {
+        this.purchaseRepository = purchaseRepository;
+        this.expenseRepository = expenseRepository;
+        this.usageRepository = usageRepository;
+        // Transaction timeouts are whole seconds, so a fraction rounds up
+        this.monthTransaction = new TransactionTemplate(transactionManager);
+        this.monthTransaction.setReadOnly(true);
+        this.monthTransaction.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                monthTimeout.toNanos() + TimeUnit.SECONDS.toNanos(1) - 1)));
+    }
+
+    /**
+     * Builds a report over [from, to] (both inclusive). The range is processed one month at a
+     * time so that progress can be reported and a cancelled job stops between chunks; each month
+     * runs in its own transaction, whose timeout stops a month that takes too long.
+     */
+    // SUPPORTS so the months still start their own bounded transactions instead of joining one
+    // that would span the whole report
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Map<String, Object> buildReport(ReportType type, LocalDate from, LocalDate to,
+                                           ReportGrouping grouping, IntConsumer progress, BooleanSupplier cancelled) {
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth m = YearMonth.from(from); !m.isAfter(YearMonth.from(to)); m = m.plusMonths(1)) {
+            months.add(m);
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        SummaryTotals summary = new SummaryTotals();
+        Map<Long, UsageTotals> usage = new TreeMap<>();
+
+        for (int i = 0; i < months.size(); i++) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Report cancelled");
+            }
+
+            YearMonth month = months.get(i);
+            LocalDate start = month.atDay(1).isBefore(from) ? from : month.atDay(1);
+            LocalDate end = month.plusMonths(1).atDay(1).isAfter(to) ? to.plusDays(1) : month.plusMonths(1).atDay(1);
+
+            if (grouping == ReportGrouping.MONTH) {
+                summary = new SummaryTotals();
+                usage = new TreeMap<>();
+            }
+            SummaryTotals monthSummary = summary;
+            Map<Long, UsageTotals> monthUsage = usage;
+            try {
+                monthTransaction.executeWithoutResult(status -> accumulate(type, start, end, monthSummary, monthUsage));
+            } catch (QueryTimeoutException | TransactionTimedOutException e) {
+                throw new QueryTimeoutException("Report timed out reading " + month, e);
+            }
+            if (grouping == ReportGrouping.MONTH) {
+                rows.add(toRow(type, month.toString(), summary, usage));
+            }
+
+            progress.accept((i + 1) * 100 / months.size());
+        }
+
+        if (grouping == ReportGrouping.NONE) {
+            rows.add(toRow(type, from + "/" + to, summary, usage));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("type", type);
+        report.put("from", from);
+        report.put("to", to);
+        report.put("grouping", grouping);
+        report.put("rows", rows);
+        return report;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> monthlySummary(YearMonth month) {
+        SummaryTotals summary = new SummaryTotals();
+        accumulate(ReportType.SUMMARY, month.atDay(1), month.plusMonths(1).atDay(1), summary, Map.of());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("purchases", FixedPoint.fromCents(summary.purchasesCents));
+        report.put("expenses", FixedPoint.fromCents(summary.expensesCents));
+        report.put("usageCount", summary.usageCount);
+        return report;
+    }
+
+    // Archived rows only survive as rollups, so every total adds the rollups for the same range,
+    // read in the same statement as the live rows
+    private void accumulate(ReportType type, LocalDate start, LocalDate end,
+                            SummaryTotals summary, Map<Long, UsageTotals> usage) {
+        switch (type) {
+            case SUMMARY -> {
+                summary.purchasesCents += purchaseRepository.sumTotalAmountCentsInRange(start, end);
+                summary.expensesCents += expenseRepository.sumAmountCentsWithRollupsInRange(start, end);
+                summary.usageCount += usageRepository.countWithRollupsInRange(start, end);
+            }
+            case USAGE -> addUsageTotals(usage, usageRepository.sumQuantityByStockItemWithRollupsInRange(start, end));
+        }
+    }
+
+    private static void addUsageTotals(Map<Long, UsageTotals> usage, List<StockItemUsageTotal> rows) {
+        rows.forEach(total -> {
+            UsageTotals totals = usage.computeIfAbsent(total.getStockItemId(), id -> new UsageTotals());
+            totals.quantityUsedMilli += total.getQuantityUsedMilli() != null ? total.getQuantityUsedMilli() : 0L;
+            totals.usageCount += total.getUsageCount();
+        });
+    }
+
+    private Map<String, Object> toRow(ReportType type, String period,
+                                      SummaryTotals summary, Map<Long, UsageTotals> usage) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("period", period);
+        if (type == ReportType.SUMMARY) {
+            row.put("purchases", FixedPoint.fromCents(summary.purchasesCents));
+            row.put("expenses", FixedPoint.fromCents(summary.expensesCents));
+            row.put("usageCount", summary.usageCount);
+        } else {
+            List<Map<String, Object>> items = new ArrayList<>(usage.size());
+            usage.forEach((stockItemId, totals) -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("stockItemId", stockItemId);
+                item.put("quantityUsed", FixedPoint.fromMilli(totals.quantityUsedMilli));
+                item.put("usageCount", totals.usageCount);
+                items.add(item);
+            });
+            row.put("items", items);
+        }
+        return row;
+    }
+
+    // Money in cents and quantities in thousandths, so totals add up exactly
+    private static class SummaryTotals {
+        long purchasesCents;
+        long expensesCents;
+        long usageCount;
+    }
+
+    private static class UsageTotals {
+        long quantityUsedMilli;
+        long usageCount;
+    }
+}
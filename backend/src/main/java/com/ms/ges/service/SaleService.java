@@ -0,0 +1,215 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.StockAuditAction;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.User;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.service.RecipeCatalog.CompiledRecipe;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Turns dish sales into stock usage. A batch of sales is expanded through the recipes into one
+ * total per stock item, then applied as one JDBC batch of decrements and one JDBC batch of
+ * {@code Usage} inserts, so the statement count depends on the number of distinct ingredients,
+ * not on the number of dishes. Either every item is decremented or none is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SaleService {
+
+    private static final String DECREMENT_SQL = "UPDATE stock_items "
+            + "SET quantity_milli = quantity_milli - ?, version = version + 1, change_seq = ? "
+            + "WHERE id = ? AND branch = ?";
+    private static final String INSERT_USAGE_SQL = "INSERT INTO usages "
+            + "(branch, version, change_seq, stock_item_id, quantity_used_milli, date, user_id) "
+            + "VALUES (?, 0, ?, ?, ?, ?, ?)";
+
+    private final RecipeCatalog recipeCatalog;
+    private final StockRepository stockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeSequence changeSequence;
+    private final InventoryValuationService inventoryValuationService;
+    private final StockAuditLog stockAuditLog;
+    private final StockLotService stockLotService;
+
+    public record DishSale(long recipeId, double portions) {
+    }
+
+    /**
+     * One {@code Usage} row to insert, in thousandths. Lines for the same stock item share one
+     * decrement.
+     */
+    public record UsageLine(long stockItemId, long quantityMilli, LocalDate date, Long userId) {
+    }
+
+    public record Consumption(long stockItemId, String stockItemName, long quantityUsedMilli,
+                              long quantityBeforeMilli, long quantityAfterMilli) {
+    }
+
+    @Transactional
+    public Map<String, Object> recordSales(List<DishSale> sales, LocalDate date, User user) {
+        TreeMap<Long, Double> totals = new TreeMap<>();
+        double portions = 0.0;
+        for (DishSale sale : sales) {
+            if (!expand(sale.recipeId(), sale.portions(), totals)) {
+                throw new BadRequestException("Recipe not found with ID: " + sale.recipeId());
+            }
+            portions += sale.portions();
+        }
+
+        Long userId = user != null ? user.getId() : null;
+        List<UsageLine> lines = new ArrayList<>(totals.size());
+        totals.forEach((stockItemId, quantity) -> {
+            long quantityMilli = FixedPoint.toMilli(quantity);
+            if (quantityMilli > 0) {
+                lines.add(new UsageLine(stockItemId, quantityMilli, date, userId));
+            }
+        });
+        List<Consumption> consumed = consume(lines, false);
+
+        List<Map<String, Object>> rows = new ArrayList<>(consumed.size());
+        for (Consumption consumption : consumed) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("stockItemId", consumption.stockItemId());
+            row.put("stockItemName", consumption.stockItemName());
+            row.put("quantityUsed", FixedPoint.fromMilli(consumption.quantityUsedMilli()));
+            row.put("quantityAfter", FixedPoint.fromMilli(consumption.quantityAfterMilli()));
+            rows.add(row);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("date", date);
+        response.put("portions", portions);
+        response.put("usagesRecorded", lines.size());
+        response.put("consumed", rows);
+        return response;
+    }
+
+    /**
+     * Adds the stock consumed by {@code portions} of a recipe in the current branch to
+     * {@code totals}. Returns false, leaving {@code totals} unchanged, if there is no such recipe.
+     */
+    public boolean expand(long recipeId, double portions, Map<Long, Double> totals) {
+        CompiledRecipe recipe = recipeCatalog.find(recipeId);
+        if (recipe == null) {
+            return false;
+        }
+        long[] stockItemIds = recipe.stockItemIds();
+        double[] quantities = recipe.quantities();
+        for (int i = 0; i < stockItemIds.length; i++) {
+            totals.merge(stockItemIds[i], quantities[i] * portions, Double::sum);
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the usage lines and decrements stock by their totals. Strictly, a missing item or
+     * insufficient stock rejects the whole call. With {@code allowShortfall}, for sales that
+     * already happened, missing items are skipped and stock stops at zero instead.
+     */
+    @Transactional
+    public List<Consumption> consume(Collection<UsageLine> lines, boolean allowShortfall) {
+        // Sorted by stock item id, so concurrent callers lock rows in the same order
+        TreeMap<Long, Long> totals = new TreeMap<>();
+        lines.forEach(line -> totals.merge(line.stockItemId(), line.quantityMilli(), Long::sum));
+        if (totals.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, StockItem> stockItems = stockRepository.findAllById(totals.keySet()).stream()
+                .collect(Collectors.toMap(StockItem::getId, Function.identity()));
+        Map<Long, Long> quantitiesBefore = lockQuantities(totals.keySet());
+        for (Long stockItemId : List.copyOf(totals.keySet())) {
+            if (!stockItems.containsKey(stockItemId) || !quantitiesBefore.containsKey(stockItemId)) {
+                if (!allowShortfall) {
+                    throw new BadRequestException("Stock item not found with ID: " + stockItemId);
+                }
+                log.warn("Skipping usage of unknown stock item {}", stockItemId);
+                totals.remove(stockItemId);
+            }
+        }
+
+        String branch = BranchContext.current();
+        List<Object[]> decrements = new ArrayList<>(totals.size());
+        List<Consumption> consumed = new ArrayList<>(totals.size());
+        totals.forEach((stockItemId, quantity) -> {
+            long before = quantitiesBefore.get(stockItemId);
+            long taken = quantity;
+            if (before < quantity) {
+                if (!allowShortfall) {
+                    throw new BadRequestException("Insufficient stock for " + stockItems.get(stockItemId).getName()
+                            + ". Available: " + FixedPoint.fromMilli(before) + ", Required: " + FixedPoint.fromMilli(quantity));
+                }
+                log.warn("Stock item {} is short by {}; stopping at zero", stockItemId, FixedPoint.fromMilli(quantity - before));
+                taken = before;
+            }
+            decrements.add(new Object[]{taken, changeSequence.next(), stockItemId, branch});
+            consumed.add(new Consumption(stockItemId, stockItems.get(stockItemId).getName(), taken, before, before - taken));
+        });
+        jdbcTemplate.batchUpdate(DECREMENT_SQL, decrements);
+        Map<Long, Long> lotDraws = new LinkedHashMap<>();
+        consumed.stream()
+                .filter(consumption -> consumption.quantityUsedMilli() > 0)
+                .forEach(consumption -> lotDraws.put(consumption.stockItemId(), consumption.quantityUsedMilli()));
+        stockLotService.consumeAll(lotDraws);
+
+        List<Object[]> usages = new ArrayList<>(lines.size());
+        for (UsageLine line : lines) {
+            if (totals.containsKey(line.stockItemId())) {
+                usages.add(new Object[]{branch, changeSequence.next(), line.stockItemId(), line.quantityMilli(),
+                        line.date(), line.userId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_USAGE_SQL, usages);
+
+        Map<Long, Double> issues = new LinkedHashMap<>();
+        for (Consumption consumption : consumed) {
+            if (consumption.quantityUsedMilli() > 0) {
+                issues.put(consumption.stockItemId(), FixedPoint.fromMilli(consumption.quantityUsedMilli()));
+            }
+        }
+        inventoryValuationService.recordIssues(stockItems, issues);
+        for (Consumption consumption : consumed) {
+            stockAuditLog.record(StockAuditAction.USAGE, consumption.stockItemId(),
+                    FixedPoint.fromMilli(consumption.quantityBeforeMilli()), FixedPoint.fromMilli(consumption.quantityAfterMilli()), null);
+        }
+        return consumed;
+    }
+
+    // Locks the rows until commit, so the decrements below are computed from current quantities
+    private Map<Long, Long> lockQuantities(Collection<Long> stockItemIds) {
+        String placeholders = String.join(", ", Collections.nCopies(stockItemIds.size(), "?"));
+        List<Object> args = new ArrayList<>(stockItemIds.size() + 1);
+        args.add(BranchContext.current());
+        args.addAll(stockItemIds);
+        Map<Long, Long> quantities = new HashMap<>();
+        jdbcTemplate.query("SELECT id, quantity_milli FROM stock_items WHERE branch = ? AND id IN (" + placeholders
+                        + ") ORDER BY id FOR UPDATE",
+                rs -> {
+                    quantities.put(rs.getLong("id"), rs.getLong("quantity_milli"));
+                },
+                args.toArray());
+        return quantities;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ms.ges.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.Supplier;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.SupplierRepository;
+
+/**
+ * Typeahead indexes over stock items (name, category) and suppliers (name, contact person).
+ * Rebuilt from the database once the application is ready and kept current by the
+ * create, update and delete endpoints. Each branch has its own pair of indexes.
+ */
+@Service
+public class SearchIndexService {
+
+    private final StockRepository stockRepository;
+    private final SupplierRepository supplierRepository;
+    private final Branches branches;
+    private final int maxTokenLength;
+    private final int maxTokensPerField;
+
+    private final Map<String, BranchIndexes> indexes = new ConcurrentHashMap<>();
+
+    public SearchIndexService(
+            StockRepository stockRepository,
+            SupplierRepository supplierRepository,
+            Branches branches,
+            @Value("${search.max-token-length:32}") int maxTokenLength,
+            @Value("${search.max-tokens-per-field:8}") int maxTokensPerField
+    ) {
+        this.stockRepository = stockRepository;
+        this.supplierRepository = supplierRepository;
+        this.branches = branches;
+        this.maxTokenLength = maxTokenLength;
+        this.maxTokensPerField = maxTokensPerField;
+    }
+
+    private record BranchIndexes(TypeaheadIndex stocks, TypeaheadIndex suppliers) {
+    }
+
+    private BranchIndexes current() {
+        return indexes.computeIfAbsent(BranchContext.current(), branch -> new BranchIndexes(
+                new TypeaheadIndex(maxTokenLength, maxTokensPerField),
+                new TypeaheadIndex(maxTokenLength, maxTokensPerField)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Later changes only update the index, so it is built from the primary
+        branches.forEach(branch -> ReplicaContext.run(true, () -> {
+            current().stocks().clear();
+            stockRepository.findAll().forEach(this::indexStockItem);
+            current().suppliers().clear();
+            supplierRepository.findAll().forEach(this::indexSupplier);
+        }));
+    }
+
+    public void indexStockItem(StockItem stockItem) {
+        current().stocks().put(stockItem.getId(), stockItem.getName(), stockItem.getCategory());
+    }
+
+    public void removeStockItem(Long id) {
+        current().stocks().remove(id);
+    }
+
+    public void indexSupplier(Supplier supplier) {
+        current().suppliers().put(supplier.getId(), supplier.getName(), supplier.getContactPerson());
+    }
+
+    public void removeSupplier(Long id) {
+        current().suppliers().remove(id);
+    }
+
+    public List<Map<String, Object>> searchStockItems(String query, int limit) {
+        return current().stocks().search(query, limit).stream()
+                .map(match -> toResult(match, "category"))
+                .toList();
+    }
+
+    public List<Map<String, Object>> searchSuppliers(String query, int limit) {
+        return current().suppliers().search(query, limit).stream()
+                .map(match -> toResult(match, "contactPerson"))
+                .toList();
+    }
+
+    private static Map<String, Object> toResult(TypeaheadIndex.Match match, String secondaryField) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", match.id());
+        result.put("name", match.primary());
+        result.put(secondaryField, match.secondary());
+        result.put("score", match.score());
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ms.ges.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the JDBC statements issued while serving each HTTP request and keeps a histogram of
+ * statement counts per endpoint. Only statements run on the request thread are attributed.
+ */
+@Slf4j
+@Service
+public class SqlStatementStats {
+
+    private static final int[] BUCKET_BOUNDS = {0, 1, 2, 5, 10, 20, 50, 100};
+
+    private final int warnThreshold;
+    private final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    public SqlStatementStats(@Value("${sql.statements.warn-threshold:25}") int warnThreshold) {
+        this.warnThreshold = warnThreshold;
+    }
+
+    public static class RequestStatements {
+        private int count;
+        private long nanos;
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    public void begin() {
+        current.set(new RequestStatements());
+    }
+
+    public RequestStatements current() {
+        return current.get();
+    }
+
+    public void recordStatement(long nanos) {
+        RequestStatements statements = current.get();
+        if (statements != null) {
+            statements.count++;
+            statements.nanos += nanos;
+        }
+    }
+
+    public void end(String endpoint) {
+        RequestStatements statements = current.get();
+        current.remove();
+        if (statements == null) {
+            return;
+        }
+        endpoints.computeIfAbsent(endpoint, e -> new EndpointStats()).record(statements);
+
+        if (statements.count > warnThreshold) {
+            log.warn("{} issued {} SQL statements ({} ms), over the budget of {}; check for N+1 queries",
+                    endpoint, statements.count, statements.nanos / 1_000_000, warnThreshold);
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} issued {} SQL statements ({} ms)", endpoint, statements.count, statements.nanos / 1_000_000);
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> snapshot.put(endpoint, stats.toMap()));
+        return snapshot;
+    }
+
+    private static class EndpointStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder statements = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maxStatements = new AtomicLong();
+        final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+
+        EndpointStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(RequestStatements request) {
+            requests.increment();
+            statements.add(request.count);
+            nanos.add(request.nanos);
+            maxStatements.accumulateAndGet(request.count, Math::max);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && request.count > BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+        }
+
+        Map<String, Object> toMap() {
+            long requestCount = requests.sum();
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                histogram.put("<=" + BUCKET_BOUNDS[i], buckets[i].sum());
+            }
+            histogram.put(">" + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1], buckets[BUCKET_BOUNDS.length].sum());
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", requestCount);
+            map.put("avgStatements", requestCount == 0 ? 0.0 : (double) statements.sum() / requestCount);
+            map.put("maxStatements", maxStatements.get());
+            map.put("avgSqlMillis", requestCount == 0 ? 0.0 : nanos.sum() / 1e6 / requestCount);
+            map.put("histogram", histogram);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ms.ges.model.StockAuditAction;
+import com.ms.ges.model.StockAuditEvent;
+import com.ms.ges.repository.StockAuditEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records stock quantity changes without touching the database on the request thread. Events are
+ * copied into pre-allocated slots of a ring buffer; producers claim slots with a CAS and never
+ * lock. A single writer thread drains the buffer in batches into {@code stock_audit_events}.
+ * When the buffer is full, {@code DROP} discards the event and {@code BLOCK} waits up to
+ * {@code audit.block-timeout} for space before discarding it.
+ */
+@Slf4j
+@Service
+public class StockAuditLog {
+
+    public enum Backpressure {
+        DROP,
+        BLOCK
+    }
+
+    private static final long NO_REFERENCE = 0L;
+
+    private final StockAuditEventRepository repository;
+    private final Slot[] slots;
+    private final int mask;
+    private final int batchSize;
+    private final Backpressure backpressure;
+    private final long blockTimeoutNanos;
+    private final long idleParkNanos;
+
+    // Next sequence a producer will claim
+    private final AtomicLong claimed = new AtomicLong();
+    // Next sequence the writer will read; everything below it may be overwritten
+    private volatile long consumed;
+
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public StockAuditLog(
+            StockAuditEventRepository repository,
+            MeterRegistry registry,
+            @Value("${audit.buffer-size:8192}") int bufferSize,
+            @Value("${audit.batch-size:256}") int batchSize,
+            @Value("${audit.backpressure:DROP}") Backpressure backpressure,
+            @Value("${audit.block-timeout:100ms}") Duration blockTimeout,
+            @Value("${audit.flush-interval:50ms}") Duration flushInterval
+    ) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("audit.buffer-size must be a power of two");
+        }
+        this.repository = repository;
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = bufferSize - 1;
+        this.batchSize = batchSize;
+        this.backpressure = backpressure;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.idleParkNanos = flushInterval.toNanos();
+
+        Gauge.builder("ges.audit.pending", this, log -> log.claimed.get() - log.consumed)
+                .description("Audit events waiting to be written")
+                .register(registry);
+        dropped = Counter.builder("ges.audit.dropped").description("Audit events discarded because the buffer was full").register(registry);
+        written = Counter.builder("ges.audit.written").description("Audit events written").register(registry);
+        failed = Counter.builder("ges.audit.failed").description("Audit events lost to write errors").register(registry);
+    }
+
+    private static final class Slot {
+        long stockItemId;
+        StockAuditAction action;
+        double quantityBefore;
+        double quantityAfter;
+        String username;
+        String branch;
+        long referenceId;
+        long occurredAtMillis;
+        // Set last; the writer only reads a slot once this equals the sequence it expects
+        volatile long sequence = -1;
+    }
+
+    /**
+     * Queues a quantity change. {@code quantityBefore} is null for a new item and
+     * {@code quantityAfter} is null for a deleted one. Inside a transaction the event is only
+     * queued once it commits, so a change that rolls back, or is retried, is not recorded.
+     */
+    public void record(StockAuditAction action, Long stockItemId, Double quantityBefore, Double quantityAfter,
+                       Long referenceId) {
+        String username = currentUser();
+        String branch = BranchContext.current();
+        long occurredAtMillis = System.currentTimeMillis();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(action, stockItemId, quantityBefore, quantityAfter, referenceId, username, branch, occurredAtMillis);
+                }
+            });
+        } else {
+            enqueue(action, stockItemId, quantityBefore, quantityAfter, referenceId, username, branch, occurredAtMillis);
+        }
+    }
+
+    private void enqueue(StockAuditAction action, Long stockItemId, Double quantityBefore, Double quantityAfter,
+                         Long referenceId, String username, String branch, long occurredAtMillis) {
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.stockItemId = stockItemId;
+        slot.action = action;
+        slot.quantityBefore = quantityBefore != null ? quantityBefore : Double.NaN;
+        slot.quantityAfter = quantityAfter != null ? quantityAfter : Double.NaN;
+        slot.username = username;
+        slot.branch = branch;
+        slot.referenceId = referenceId != null ? referenceId : NO_REFERENCE;
+        slot.occurredAtMillis = occurredAtMillis;
+        slot.sequence = sequence;
+    }
+
+    private long claim() {
+        long deadline = 0;
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed < slots.length) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+                continue;
+            }
+            if (backpressure == Backpressure.DROP) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            if (deadline == 0) {
+                deadline = now + blockTimeoutNanos;
+            } else if (now - deadline > 0) {
+                return -1;
+            }
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "stock-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(Duration.ofSeconds(10).toMillis());
+    }
+
+    private void drainLoop() {
+        while (true) {
+            List<StockAuditEvent> batch = drain();
+            if (batch.isEmpty()) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(idleParkNanos);
+                continue;
+            }
+            // Each branch's events are written in its own session, which may be on its own database
+            Map<String, List<StockAuditEvent>> byBranch = batch.stream()
+                    .collect(Collectors.groupingBy(StockAuditEvent::getBranch, LinkedHashMap::new, Collectors.toList()));
+            byBranch.forEach((branch, events) -> {
+                try {
+                    BranchContext.run(branch, () -> repository.saveAll(events));
+                    written.increment(events.size());
+                } catch (RuntimeException e) {
+                    failed.increment(events.size());
+                    log.error("Could not write {} stock audit events for branch {}", events.size(), branch, e);
+                }
+            });
+        }
+    }
+
+    private List<StockAuditEvent> drain() {
+        List<StockAuditEvent> batch = new ArrayList<>();
+        long next = consumed;
+        while (batch.size() < batchSize) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.sequence != next) {
+                break;
+            }
+            batch.add(toEvent(slot));
+            slot.username = null;
+            slot.branch = null;
+            next++;
+        }
+        consumed = next;
+        return batch;
+    }
+
+    private static StockAuditEvent toEvent(Slot slot) {
+        StockAuditEvent event = new StockAuditEvent();
+        event.setStockItemId(slot.stockItemId);
+        event.setAction(slot.action);
+        event.setQuantityBefore(Double.isNaN(slot.quantityBefore) ? null : slot.quantityBefore);
+        event.setQuantityAfter(Double.isNaN(slot.quantityAfter) ? null : slot.quantityAfter);
+        event.setUsername(slot.username);
+        event.setBranch(slot.branch);
+        event.setReferenceId(slot.referenceId == NO_REFERENCE ? null : slot.referenceId);
+        event.setOccurredAt(Instant.ofEpochMilli(slot.occurredAtMillis));
+        return event;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "system";
+    }
+}
@@ -0,0 +1,277 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.StockLot;
+import com.ms.ges.repository.StockLotRepository;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.service.LotQueue.Draw;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lots and expiry dates. Receipts add a lot and usage draws from the earliest-expiring lots
+ * first, planned from a per-item {@link LotQueue} kept in memory. Each item's queue is loaded
+ * from the database on first use and follows committed changes from then on; a draw the
+ * database refuses, because the queue was behind, reloads it.
+ *
+ * Callers must move the item's quantity first, which locks its row until commit, so lot changes
+ * to one item never interleave. Returned usage goes back into the lots it was most likely drawn
+ * from. Quantity that is not in any lot (stock from before lots were tracked, manual increases and
+ * returns beyond what the lots gave out) is drawn after all lots.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockLotService {
+
+    // Guarded like StockRepository.adjustQuantity, so a draw planned from a stale queue takes nothing
+    private static final String DRAW_SQL = "UPDATE stock_lots SET remaining_quantity_milli = remaining_quantity_milli - ? "
+            + "WHERE id = ? AND branch = ? AND remaining_quantity_milli >= ?";
+    private static final String OPEN_LOTS_SQL = "SELECT id, expiry_date, received_date, remaining_quantity_milli "
+            + "FROM stock_lots WHERE branch = ? AND stock_item_id = ? AND remaining_quantity_milli > 0";
+    private static final String DRAWN_LOTS_SQL = "SELECT id, expiry_date, received_date, "
+            + "original_quantity_milli - remaining_quantity_milli AS drawn_milli "
+            + "FROM stock_lots WHERE branch = ? AND stock_item_id = ? AND remaining_quantity_milli < original_quantity_milli";
+    // A lot never holds more than it was received with
+    private static final String RESTORE_SQL = "UPDATE stock_lots SET remaining_quantity_milli = remaining_quantity_milli + ? "
+            + "WHERE id = ? AND branch = ? AND remaining_quantity_milli + ? <= original_quantity_milli";
+
+    private final StockLotRepository stockLotRepository;
+    private final StockRepository stockRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<QueueKey, LotQueue> queues = new ConcurrentHashMap<>();
+
+    private record QueueKey(String branch, long stockItemId) {
+    }
+
+    private record DrawnLot(LotQueue.Lot lot, long drawnMilli) {
+    }
+
+    @Transactional
+    public StockLot receive(Long stockItemId, long quantityMilli, LocalDate receivedDate, LocalDate expiryDate, Long purchaseId) {
+        StockLot lot = new StockLot();
+        lot.setStockItemId(stockItemId);
+        lot.setPurchaseId(purchaseId);
+        lot.setReceivedDate(receivedDate != null ? receivedDate : LocalDate.now());
+        lot.setExpiryDate(expiryDate);
+        lot.setOriginalQuantityMilli(quantityMilli);
+        lot.setRemainingQuantityMilli(quantityMilli);
+        StockLot savedLot = stockLotRepository.save(lot);
+
+        QueueKey key = key(stockItemId);
+        afterCommit(() -> {
+            // A queue loaded since the commit already has the lot, and add ignores it then
+            LotQueue queue = queues.get(key);
+            if (queue != null) {
+                queue.add(toQueued(savedLot));
+            }
+        });
+        return savedLot;
+    }
+
+    /**
+     * Takes up to {@code quantityMilli} from the item's lots, earliest expiry first, and returns
+     * what was taken from which lot.
+     */
+    @Transactional
+    public List<Draw> consume(Long stockItemId, long quantityMilli) {
+        return consumeAll(Map.of(stockItemId, quantityMilli)).get(stockItemId);
+    }
+
+    /**
+     * Like {@link #consume} for several items at once, with the draws of all of them sent to the
+     * database as one batch.
+     */
+    @Transactional
+    public Map<Long, List<Draw>> consumeAll(Map<Long, Long> quantitiesMilli) {
+        Map<Long, LotQueue> planned = new LinkedHashMap<>();
+        Map<Long, List<Draw>> draws = new LinkedHashMap<>();
+        quantitiesMilli.forEach((stockItemId, quantityMilli) -> {
+            LotQueue queue = queues.computeIfAbsent(key(stockItemId), k -> load(stockItemId));
+            planned.put(stockItemId, queue);
+            draws.put(stockItemId, queue.plan(quantityMilli));
+        });
+
+        Set<Long> behind = drawAll(draws);
+        draws.forEach((stockItemId, itemDraws) -> {
+            QueueKey key = key(stockItemId);
+            LotQueue queue = planned.get(stockItemId);
+            if (!behind.contains(stockItemId)) {
+                afterCommit(() -> queue.apply(itemDraws));
+                return;
+            }
+            // The queue was behind the database. What this transaction drew so far is uncommitted,
+            // so the queue planned from here is dropped once it ends and the next use loads it afresh.
+            queues.remove(key, queue);
+            long outstanding = quantitiesMilli.get(stockItemId) - drawn(itemDraws);
+            List<Draw> remainingDraws = load(stockItemId).plan(outstanding);
+            if (!drawAll(Map.of(stockItemId, remainingDraws)).isEmpty()) {
+                throw new IllegalStateException("Lots of stock item " + stockItemId + " changed while being drawn");
+            }
+            itemDraws.addAll(remainingDraws);
+            afterCompletion(() -> queues.remove(key));
+        });
+        return draws;
+    }
+
+    /**
+     * Puts {@code quantityMilli} of returned usage back into the item's lots. Which lots a usage
+     * drew from is not kept, so it goes to the lots that would have been drawn last, latest expiry
+     * first, each up to what was drawn from it. What the lots cannot take is left outside them.
+     */
+    @Transactional
+    public void restore(Long stockItemId, long quantityMilli) {
+        List<DrawnLot> drawnLots = new ArrayList<>();
+        jdbcTemplate.query(DRAWN_LOTS_SQL, (RowCallbackHandler) rs -> drawnLots.add(new DrawnLot(
+                        new LotQueue.Lot(
+                                rs.getLong("id"),
+                                rs.getObject("expiry_date", LocalDate.class),
+                                rs.getObject("received_date", LocalDate.class),
+                                0),
+                        rs.getLong("drawn_milli"))),
+                BranchContext.current(), stockItemId);
+        drawnLots.sort(Comparator.comparing(DrawnLot::lot, LotQueue.FIRST_EXPIRED_FIRST_OUT.reversed()));
+
+        String branch = BranchContext.current();
+        List<Object[]> args = new ArrayList<>();
+        long outstanding = quantityMilli;
+        for (DrawnLot drawnLot : drawnLots) {
+            if (outstanding <= 0) {
+                break;
+            }
+            long restored = Math.min(outstanding, drawnLot.drawnMilli());
+            args.add(new Object[]{restored, drawnLot.lot().id(), branch, restored});
+            outstanding -= restored;
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RESTORE_SQL, args);
+
+        // Returns are rare, so the queue is loaded afresh rather than patched
+        QueueKey key = key(stockItemId);
+        afterCommit(() -> queues.remove(key));
+    }
+
+    @Transactional
+    public void remove(Long stockItemId) {
+        stockLotRepository.deleteByStockItemId(stockItemId);
+        QueueKey key = key(stockItemId);
+        afterCompletion(() -> queues.remove(key));
+    }
+
+    /**
+     * Open lots expiring within {@code days} days, including those already expired, soonest first.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> expiring(int days) {
+        LocalDate today = LocalDate.now();
+        List<StockLot> lots = stockLotRepository.findExpiringBy(today.plusDays(days));
+        Map<Long, StockItem> stockItems = stockRepository.findAllById(lots.stream().map(StockLot::getStockItemId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(StockItem::getId, Function.identity()));
+
+        List<Map<String, Object>> result = new ArrayList<>(lots.size());
+        for (StockLot lot : lots) {
+            StockItem stockItem = stockItems.get(lot.getStockItemId());
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("lotId", lot.getId());
+            item.put("stockItemId", lot.getStockItemId());
+            item.put("name", stockItem != null ? stockItem.getName() : null);
+            item.put("expiryDate", lot.getExpiryDate());
+            item.put("remainingQuantity", lot.getRemainingQuantity());
+            item.put("expired", lot.getExpiryDate().isBefore(today));
+            result.add(item);
+        }
+        return result;
+    }
+
+    // Read with JDBC, so lots drawn earlier in this transaction are not served from the session
+    private LotQueue load(Long stockItemId) {
+        LotQueue queue = new LotQueue();
+        jdbcTemplate.query(OPEN_LOTS_SQL, (RowCallbackHandler) rs -> queue.add(new LotQueue.Lot(
+                        rs.getLong("id"),
+                        rs.getObject("expiry_date", LocalDate.class),
+                        rs.getObject("received_date", LocalDate.class),
+                        rs.getLong("remaining_quantity_milli"))),
+                BranchContext.current(), stockItemId);
+        return queue;
+    }
+
+    /**
+     * Applies the draws and returns the items with a draw the database refused. Those items keep
+     * only the draws that were taken.
+     */
+    private Set<Long> drawAll(Map<Long, List<Draw>> draws) {
+        String branch = BranchContext.current();
+        List<Long> stockItemIds = new ArrayList<>();
+        List<Draw> flat = new ArrayList<>();
+        List<Object[]> args = new ArrayList<>();
+        draws.forEach((stockItemId, itemDraws) -> itemDraws.forEach(draw -> {
+            stockItemIds.add(stockItemId);
+            flat.add(draw);
+            args.add(new Object[]{draw.quantityMilli(), draw.lotId(), branch, draw.quantityMilli()});
+        }));
+        if (args.isEmpty()) {
+            return Set.of();
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(DRAW_SQL, args);
+        Set<Long> behind = new HashSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                behind.add(stockItemIds.get(i));
+                draws.get(stockItemIds.get(i)).remove(flat.get(i));
+            }
+        }
+        return behind;
+    }
+
+    private static long drawn(List<Draw> draws) {
+        return draws.stream().mapToLong(Draw::quantityMilli).sum();
+    }
+
+    private static LotQueue.Lot toQueued(StockLot lot) {
+        return new LotQueue.Lot(lot.getId(), lot.getExpiryDate(), lot.getReceivedDate(), lot.getRemainingQuantityMilli());
+    }
+
+    private static QueueKey key(Long stockItemId) {
+        return new QueueKey(BranchContext.current(), stockItemId);
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterCompletion(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+}
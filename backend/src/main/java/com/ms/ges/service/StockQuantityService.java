@@ -0,0 +1,49 @@
+package com.ms.ges.service;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.repository.StockRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Applies stock movements as a single relative UPDATE instead of read-modify-write on the
+ * entity, so usages and purchases on the same item never conflict with each other and never
+ * need an {@code If-Match} from the client.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockQuantityService {
+
+    private final StockRepository stockRepository;
+    private final ChangeSequence changeSequence;
+
+    public record Change(Long stockItemId, long quantityBeforeMilli, long quantityAfterMilli) {
+
+        public double quantityBefore() {
+            return FixedPoint.fromMilli(quantityBeforeMilli);
+        }
+
+        public double quantityAfter() {
+            return FixedPoint.fromMilli(quantityAfterMilli);
+        }
+    }
+
+    /**
+     * Adds {@code deltaMilli} thousandths to the item's quantity. Returns empty when the item does
+     * not exist or the result would be negative, in which case nothing is changed.
+     */
+    @Transactional
+    public Optional<Change> adjust(Long stockItemId, long deltaMilli) {
+        if (stockRepository.adjustQuantity(stockItemId, deltaMilli, changeSequence.next()) == 0) {
+            return Optional.empty();
+        }
+        // The updated row stays locked until commit, so this reads our own write
+        long quantityAfterMilli = stockRepository.findQuantityMilliById(stockItemId);
+        return Optional.of(new Change(stockItemId, quantityAfterMilli - deltaMilli, quantityAfterMilli));
+    }
+}
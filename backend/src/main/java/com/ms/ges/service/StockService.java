@@ -0,0 +1,114 @@
+package com.ms.ges.service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.StockAuditAction;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.SyncEntity;
+import com.ms.ges.repository.QuerySpecifications;
+import com.ms.ges.repository.StockRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stock items and their valuation rows, written together in one transaction. The search index
+ * is in memory and is left to the caller, to update once the transaction has committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockService {
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "category");
+
+    private final StockRepository stockRepository;
+    private final InventoryValuationService inventoryValuationService;
+    private final SyncService syncService;
+    private final StockAuditLog stockAuditLog;
+    private final StockLotService stockLotService;
+
+    @Transactional(readOnly = true)
+    public List<StockItem> findAll(String category, Boolean lowStock, Sort sort) {
+        Specification<StockItem> spec = Specification.allOf(
+                QuerySpecifications.equalTo("category", category),
+                Boolean.TRUE.equals(lowStock) ? lowStockSpecification() : null);
+        return stockRepository.findAll(spec, QuerySpecifications.validateSort(sort, SORTABLE_FIELDS));
+    }
+
+    private static Specification<StockItem> lowStockSpecification() {
+        return (root, query, cb) -> cb.le(root.get("quantityMilli"), root.get("reorderLevelMilli"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<StockItem> findById(Long id) {
+        return stockRepository.findById(id);
+    }
+
+    @Transactional
+    public StockItem create(StockItem stockItem) {
+        StockItem savedStockItem = stockRepository.save(stockItem);
+        inventoryValuationService.openingBalance(savedStockItem);
+        stockAuditLog.record(StockAuditAction.CREATE, savedStockItem.getId(), null, savedStockItem.getQuantity(), null);
+        return savedStockItem;
+    }
+
+    /**
+     * Returns the updated item, or empty when there is no such item.
+     */
+    @Transactional
+    public Optional<StockItem> update(Long id, String ifMatch, StockItem stockItemDetails) {
+        Optional<StockItem> optionalStock = stockRepository.findById(id);
+        if (optionalStock.isEmpty()) {
+            return Optional.empty();
+        }
+        StockItem stockItem = optionalStock.get();
+        EntityTags.check(ifMatch, stockItem.getVersion());
+        Double quantityBefore = stockItem.getQuantity();
+        stockItem.setName(stockItemDetails.getName());
+        stockItem.setCategory(stockItemDetails.getCategory());
+        if (stockItemDetails.getQuantity() != null) {
+            inventoryValuationService.recordAdjustment(stockItem, stockItemDetails.getQuantity());
+        }
+        stockItem.setQuantity(stockItemDetails.getQuantity());
+        stockItem.setUnitPrice(stockItemDetails.getUnitPrice());
+        stockItem.setReorderLevel(stockItemDetails.getReorderLevel());
+        // Flushed here so the response carries the new version
+        StockItem updatedStockItem = stockRepository.saveAndFlush(stockItem);
+        // A decrease (waste, a count correction) draws from the lots after the flush has locked the row;
+        // an increase is not tied to any receipt, so it stays outside the lots
+        Long quantityBeforeMilli = FixedPoint.toMilli(quantityBefore);
+        Long quantityAfterMilli = updatedStockItem.getQuantityMilli();
+        if (quantityBeforeMilli != null && quantityAfterMilli != null && quantityAfterMilli < quantityBeforeMilli) {
+            stockLotService.consume(id, quantityBeforeMilli - quantityAfterMilli);
+        }
+        if (!Objects.equals(quantityBefore, updatedStockItem.getQuantity())) {
+            stockAuditLog.record(StockAuditAction.MANUAL_EDIT, id, quantityBefore, updatedStockItem.getQuantity(), null);
+        }
+        return Optional.of(updatedStockItem);
+    }
+
+    /**
+     * Returns false when there is no such item.
+     */
+    @Transactional
+    public boolean delete(Long id) {
+        Optional<StockItem> existing = stockRepository.findById(id);
+        if (existing.isEmpty()) {
+            return false;
+        }
+        stockRepository.delete(existing.get());
+        stockAuditLog.record(StockAuditAction.DELETE, id, existing.get().getQuantity(), null, null);
+        syncService.recordDeletion(SyncEntity.STOCK_ITEM, id);
+        inventoryValuationService.remove(id);
+        stockLotService.remove(id);
+        return true;
+    }
+}
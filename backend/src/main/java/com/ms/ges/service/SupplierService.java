@@ -0,0 +1,75 @@
+package com.ms.ges.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.exception.ResourceNotFoundException;
+import com.ms.ges.model.Supplier;
+import com.ms.ges.model.SyncEntity;
+import com.ms.ges.repository.SupplierRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class SupplierService {
+
+    private final SupplierRepository supplierRepository;
+    private final SyncService syncService;
+
+    @Transactional(readOnly = true)
+    public List<Supplier> findAll() {
+        return supplierRepository.findAll();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Supplier> findById(Long id) {
+        return supplierRepository.findById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Supplier getById(Long id) {
+        return supplierRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("Supplier not found with id: " + id));
+    }
+
+    @Transactional
+    public Supplier create(Supplier supplier) {
+        return supplierRepository.save(supplier);
+    }
+
+    /**
+     * Returns the updated supplier, or empty when there is no such supplier.
+     */
+    @Transactional
+    public Optional<Supplier> update(Long id, String ifMatch, Supplier supplierDetails) {
+        Optional<Supplier> optionalSupplier = supplierRepository.findById(id);
+        if (optionalSupplier.isEmpty()) {
+            return Optional.empty();
+        }
+        Supplier supplier = optionalSupplier.get();
+        EntityTags.check(ifMatch, supplier.getVersion());
+        supplier.setName(supplierDetails.getName());
+        supplier.setPhone(supplierDetails.getPhone());
+        supplier.setEmail(supplierDetails.getEmail());
+        // Flushed here so the response carries the new version
+        return Optional.of(supplierRepository.saveAndFlush(supplier));
+    }
+
+    /**
+     * Returns false when there is no such supplier.
+     */
+    @Transactional
+    public boolean delete(Long id) {
+        Optional<Supplier> supplier = supplierRepository.findById(id);
+        if (supplier.isEmpty()) {
+            return false;
+        }
+        supplierRepository.delete(supplier.get());
+        syncService.recordDeletion(SyncEntity.SUPPLIER, id);
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.Supplier;
+import com.ms.ges.repository.PurchaseRepository;
+import com.ms.ges.repository.PurchaseRepository.SupplierItemSpend;
+import com.ms.ges.repository.PurchaseRepository.SupplierSpend;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.SupplierRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class SupplierSpendService {
+
+    private static final LocalDate EARLIEST = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+
+    private final PurchaseRepository purchaseRepository;
+    private final SupplierRepository supplierRepository;
+    private final StockRepository stockRepository;
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> spendForSupplier(Supplier supplier, LocalDate from, LocalDate to, int topItems) {
+        LocalDate start = from != null ? from : EARLIEST;
+        LocalDate end = to != null ? to.plusDays(1) : LATEST;
+
+        List<SupplierSpend> spend = purchaseRepository.sumSpendForSupplier(supplier.getId(), start, end);
+        long purchaseCount = spend.isEmpty() ? 0 : spend.get(0).getPurchaseCount();
+        long totalSpendCents = spend.isEmpty() ? 0 : spend.get(0).getTotalSpendCents();
+
+        List<SupplierItemSpend> items = purchaseCount == 0
+                ? List.of()
+                : purchaseRepository.sumItemSpendForSuppliers(List.of(supplier.getId()), start, end)
+                        .stream().limit(topItems).toList();
+
+        return toRow(supplier.getId(), supplier.getName(), purchaseCount, totalSpendCents, items, stockItemNames(items));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> ranking(LocalDate from, LocalDate to, int limit, int topItems) {
+        LocalDate start = from != null ? from : EARLIEST;
+        LocalDate end = to != null ? to.plusDays(1) : LATEST;
+
+        List<SupplierSpend> ranked = purchaseRepository.rankSuppliersBySpend(start, end, PageRequest.of(0, limit));
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> supplierIds = ranked.stream().map(SupplierSpend::getSupplierId).toList();
+        Map<Long, String> supplierNames = supplierRepository.findAllById(supplierIds).stream()
+                .collect(Collectors.toMap(Supplier::getId, Supplier::getName));
+
+        // Rows arrive ordered by supplier, then by spend descending
+        List<SupplierItemSpend> items = purchaseRepository.sumItemSpendForSuppliers(supplierIds, start, end);
+        Map<Long, List<SupplierItemSpend>> itemsBySupplier = new HashMap<>();
+        for (SupplierItemSpend item : items) {
+            List<SupplierItemSpend> top = itemsBySupplier.computeIfAbsent(item.getSupplierId(), id -> new ArrayList<>());
+            if (top.size() < topItems) {
+                top.add(item);
+            }
+        }
+        Map<Long, String> stockItemNames = stockItemNames(
+                itemsBySupplier.values().stream().flatMap(List::stream).toList());
+
+        List<Map<String, Object>> rows = new ArrayList<>(ranked.size());
+        for (SupplierSpend spend : ranked) {
+            rows.add(toRow(spend.getSupplierId(), supplierNames.get(spend.getSupplierId()),
+                    spend.getPurchaseCount(), spend.getTotalSpendCents(),
+                    itemsBySupplier.getOrDefault(spend.getSupplierId(), List.of()), stockItemNames));
+        }
+        return rows;
+    }
+
+    private Map<Long, String> stockItemNames(List<SupplierItemSpend> items) {
+        Set<Long> ids = items.stream().map(SupplierItemSpend::getStockItemId).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return stockRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(StockItem::getId, StockItem::getName, (a, b) -> a));
+    }
+
+    private Map<String, Object> toRow(Long supplierId, String supplierName, long purchaseCount, long totalSpendCents,
+                                      List<SupplierItemSpend> topItems, Map<Long, String> stockItemNames) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("supplierId", supplierId);
+        row.put("supplierName", supplierName);
+        row.put("totalSpend", FixedPoint.fromCents(totalSpendCents));
+        row.put("purchaseCount", purchaseCount);
+        row.put("averageBasket", purchaseCount == 0 ? 0.0 : FixedPoint.fromCents(Math.round((double) totalSpendCents / purchaseCount)));
+        row.put("topItems", topItems.stream().map(item -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("stockItemId", item.getStockItemId());
+            entry.put("stockItemName", stockItemNames.get(item.getStockItemId()));
+            entry.put("quantity", FixedPoint.fromMilli(item.getQuantityMilli()));
+            entry.put("spend", FixedPoint.fromCents(FixedPoint.milliCentsToCents(item.getSpendMilliCents())));
+            return entry;
+        }).toList());
+        return row;
+    }
+}
@@ -0,0 +1,194 @@
+package com.ms.ges.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ms.ges.model.Purchase;
+import com.ms.ges.model.SyncEntity;
+import com.ms.ges.model.SyncState;
+import com.ms.ges.model.SyncTracked;
+import com.ms.ges.model.Tombstone;
+import com.ms.ges.model.Usage;
+import com.ms.ges.repository.ExpenseRepository;
+import com.ms.ges.repository.PurchaseRepository;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.SupplierRepository;
+import com.ms.ges.repository.SyncStateRepository;
+import com.ms.ges.repository.TombstoneRepository;
+import com.ms.ges.repository.UsageRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+
+@Service
+public class SyncService {
+
+    private final ChangeSequence changeSequence;
+    private final TombstoneRepository tombstoneRepository;
+    private final SyncStateRepository syncStateRepository;
+    private final EntityManager entityManager;
+    private final Branches branches;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration tombstoneRetention;
+    private final Map<SyncEntity, JpaSpecificationExecutor<? extends SyncTracked>> repositories = new EnumMap<>(SyncEntity.class);
+
+    public SyncService(
+            ChangeSequence changeSequence,
+            TombstoneRepository tombstoneRepository,
+            SyncStateRepository syncStateRepository,
+            EntityManager entityManager,
+            Branches branches,
+            TransactionTemplate transactionTemplate,
+            StockRepository stockRepository,
+            SupplierRepository supplierRepository,
+            UsageRepository usageRepository,
+            PurchaseRepository purchaseRepository,
+            ExpenseRepository expenseRepository,
+            @Value("${sync.tombstone-retention:30d}") Duration tombstoneRetention
+    ) {
+        this.changeSequence = changeSequence;
+        this.tombstoneRepository = tombstoneRepository;
+        this.syncStateRepository = syncStateRepository;
+        this.entityManager = entityManager;
+        this.branches = branches;
+        this.transactionTemplate = transactionTemplate;
+        this.tombstoneRetention = tombstoneRetention;
+        repositories.put(SyncEntity.STOCK_ITEM, stockRepository);
+        repositories.put(SyncEntity.SUPPLIER, supplierRepository);
+        repositories.put(SyncEntity.USAGE, usageRepository);
+        repositories.put(SyncEntity.PURCHASE, purchaseRepository);
+        repositories.put(SyncEntity.EXPENSE, expenseRepository);
+    }
+
+    // The sequence is shared by all branches, so it starts above the highest value in any of them
+    @PostConstruct
+    public void initializeSequence() {
+        branches.forEach(branch -> {
+            for (String entity : List.of("StockItem", "Supplier", "Usage", "Purchase", "Expense", "Tombstone")) {
+                String field = entity.equals("Tombstone") ? "seq" : "changeSeq";
+                Long value = entityManager.createQuery("SELECT MAX(e." + field + ") FROM " + entity + " e", Long.class)
+                        .getSingleResult();
+                if (value != null) {
+                    changeSequence.advanceTo(value);
+                }
+            }
+        });
+    }
+
+    @Transactional
+    public void recordDeletion(SyncEntity entityType, Long entityId) {
+        Tombstone tombstone = new Tombstone();
+        tombstone.setSeq(changeSequence.next());
+        tombstone.setEntityType(entityType);
+        tombstone.setEntityId(entityId);
+        tombstone.setDeletedAt(Instant.now());
+        tombstoneRepository.save(tombstone);
+    }
+
+    /**
+     * Returns records changed and deleted after {@code since}, at most {@code limit} per entity
+     * type. When a type is truncated the cursor stops at the last change every type could include,
+     * and {@code hasMore} tells the client to call again with {@code nextSince}.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> changesSince(long since, int limit) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("since", since);
+
+        // A cursor at the last pruned tombstone has already seen every deletion that was pruned
+        if (since > 0 && since < prunedThroughSeq()) {
+            response.put("resetRequired", true);
+            response.put("nextSince", changeSequence.highWaterMark());
+            return response;
+        }
+
+        long upTo = changeSequence.highWaterMark();
+        boolean hasMore = false;
+
+        Map<SyncEntity, List<? extends SyncTracked>> changed = new EnumMap<>(SyncEntity.class);
+        for (Map.Entry<SyncEntity, JpaSpecificationExecutor<? extends SyncTracked>> entry : repositories.entrySet()) {
+            List<? extends SyncTracked> rows = findChanged(entry.getValue(), since, upTo, limit + 1);
+            rows.forEach(SyncService::initializeAssociations);
+            if (rows.size() > limit) {
+                hasMore = true;
+                upTo = Math.min(upTo, rows.get(limit - 1).getChangeSeq());
+            }
+            changed.put(entry.getKey(), rows);
+        }
+
+        List<Tombstone> tombstones = tombstoneRepository.findInRange(since, upTo);
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Map<String, List<Long>> deleted = new LinkedHashMap<>();
+        for (SyncEntity type : SyncEntity.values()) {
+            long cursor = upTo;
+            changes.put(type.getKey(), changed.get(type).stream()
+                    .filter(row -> row.getChangeSeq() <= cursor)
+                    .toList());
+            deleted.put(type.getKey(), new ArrayList<>());
+        }
+        tombstones.forEach(tombstone -> deleted.get(tombstone.getEntityType().getKey()).add(tombstone.getEntityId()));
+
+        response.put("nextSince", upTo);
+        response.put("hasMore", hasMore);
+        response.put("changes", changes);
+        response.put("deleted", deleted);
+        return response;
+    }
+
+    // The response is written after the transaction ends, so the associations it shows are loaded here
+    private static void initializeAssociations(SyncTracked row) {
+        if (row instanceof Purchase purchase) {
+            Hibernate.initialize(purchase.getItems());
+        } else if (row instanceof Usage usage) {
+            Hibernate.initialize(usage.getUser());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends SyncTracked> List<T> findChanged(JpaSpecificationExecutor<? extends SyncTracked> repository,
+                                                        long since, long upTo, int limit) {
+        Specification<T> spec = (root, query, cb) -> cb.and(
+                cb.greaterThan(root.get("changeSeq"), since),
+                cb.lessThanOrEqualTo(root.get("changeSeq"), upTo));
+        return ((JpaSpecificationExecutor<T>) repository)
+                .findBy(spec, query -> query.sortBy(Sort.by("changeSeq")).limit(limit).all());
+    }
+
+    private long prunedThroughSeq() {
+        return syncStateRepository.findFirstByOrderByIdAsc()
+                .map(SyncState::getPrunedThroughSeq)
+                .orElse(0L);
+    }
+
+    @Scheduled(fixedDelayString = "${sync.tombstone-prune-interval:3600000}")
+    public void pruneTombstones() {
+        branches.forEach(branch -> transactionTemplate.executeWithoutResult(status -> pruneBranchTombstones()));
+    }
+
+    private void pruneBranchTombstones() {
+        Long seq = tombstoneRepository.findMaxSeqDeletedBefore(Instant.now().minus(tombstoneRetention));
+        if (seq == null) {
+            return;
+        }
+        tombstoneRepository.deleteThroughSeq(seq);
+        SyncState state = syncStateRepository.findFirstByOrderByIdAsc().orElseGet(SyncState::new);
+        state.setPrunedThroughSeq(Math.max(state.getPrunedThroughSeq(), seq));
+        syncStateRepository.save(state);
+    }
+}
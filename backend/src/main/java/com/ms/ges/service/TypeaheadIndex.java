@@ -0,0 +1,207 @@
+package com.ms.ges.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory token prefix index over a primary and a secondary text field. Every document
+ * contributes at most {@code maxTokensPerField} tokens per field, each truncated to
+ * {@code maxTokenLength} characters, so memory grows linearly with the number of documents.
+ */
+public class TypeaheadIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private final int maxTokenLength;
+    private final int maxTokensPerField;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TypeaheadIndex(int maxTokenLength, int maxTokensPerField) {
+        this.maxTokenLength = maxTokenLength;
+        this.maxTokensPerField = maxTokensPerField;
+    }
+
+    public record Match(long id, String primary, String secondary, int score) {
+    }
+
+    private record Entry(long id, String primary, String secondary, String normalizedPrimary,
+                         List<String> primaryTokens, List<String> secondaryTokens) {
+    }
+
+    public void put(long id, String primary, String secondary) {
+        Entry entry = new Entry(id, primary, secondary, normalize(primary),
+                tokenize(primary), tokenize(secondary));
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.put(id, entry);
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                unlink(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the best {@code limit} documents in which every query token is a prefix of some
+     * token of either field. Prefix matches on the primary field outrank the secondary field.
+     */
+    public List<Match> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String normalizedQuery = normalize(query);
+
+        Comparator<Match> ranking = Comparator.comparingInt(Match::score)
+                .thenComparing(match -> -match.primary().length())
+                .thenComparing(Match::primary, Comparator.reverseOrder());
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, ranking);
+
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = null;
+            for (String token : queryTokens) {
+                Set<Long> matching = new HashSet<>();
+                postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                        .values().forEach(matching::addAll);
+                if (candidates == null) {
+                    candidates = matching;
+                } else {
+                    candidates.retainAll(matching);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            for (Long id : candidates) {
+                Entry entry = entries.get(id);
+                best.add(new Match(entry.id(), entry.primary(), entry.secondary(),
+                        score(entry, normalizedQuery, queryTokens)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(ranking.reversed());
+        return matches;
+    }
+
+    private int score(Entry entry, String normalizedQuery, List<String> queryTokens) {
+        int score = entry.normalizedPrimary().startsWith(normalizedQuery) ? 100 : 0;
+        for (String queryToken : queryTokens) {
+            score += Math.max(
+                    bestTokenScore(entry.primaryTokens(), queryToken, 15, 10),
+                    bestTokenScore(entry.secondaryTokens(), queryToken, 5, 3));
+        }
+        return score;
+    }
+
+    private static int bestTokenScore(List<String> tokens, String queryToken, int exact, int prefix) {
+        int best = 0;
+        for (String token : tokens) {
+            if (token.equals(queryToken)) {
+                return exact;
+            }
+            if (token.startsWith(queryToken)) {
+                best = prefix;
+            }
+        }
+        return best;
+    }
+
+    private void link(Entry entry) {
+        entry.primaryTokens().forEach(token -> postings.computeIfAbsent(token, t -> new HashSet<>()).add(entry.id()));
+        entry.secondaryTokens().forEach(token -> postings.computeIfAbsent(token, t -> new HashSet<>()).add(entry.id()));
+    }
+
+    private void unlink(Entry entry) {
+        entry.primaryTokens().forEach(token -> unlink(token, entry.id()));
+        entry.secondaryTokens().forEach(token -> unlink(token, entry.id()));
+    }
+
+    private void unlink(String token, long id) {
+        Set<Long> ids = postings.get(token);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(token);
+        }
+    }
+
+    private List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            String bounded = token.length() > maxTokenLength ? token.substring(0, maxTokenLength) : token;
+            if (!tokens.contains(bounded)) {
+                tokens.add(bounded);
+            }
+            if (tokens.size() == maxTokensPerField) {
+                break;
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase();
+    }
+}
@@ -0,0 +1,180 @@
+package com.ms.ges.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ms.ges.exception.BadRequestException;
+import com.ms.ges.model.FixedPoint;
+import com.ms.ges.model.StockAuditAction;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.SyncEntity;
+import com.ms.ges.model.Usage;
+import com.ms.ges.model.User;
+import com.ms.ges.repository.QuerySpecifications;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.UsageRepository;
+import com.ms.ges.service.StockQuantityService.Change;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Usages and the stock movements they cause. Each write is one transaction: the usage row, the
+ * stock quantity, the valuation and the sync tombstone commit or roll back together, and cached
+ * report summaries are dropped once they have.
+ */
+@Service
+@RequiredArgsConstructor
+public class UsageService {
+
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "date", "stockItemId");
+
+    private final UsageRepository usageRepository;
+    private final StockRepository stockRepository;
+    private final StockQuantityService stockQuantityService;
+    private final InventoryValuationService inventoryValuationService;
+    private final SyncService syncService;
+    private final StockAuditLog stockAuditLog;
+    private final StockLotService stockLotService;
+    private final ReportCache reportCache;
+
+    // Responses are written after the transaction ends, so the users they show are loaded here
+    @Transactional(readOnly = true)
+    public List<Usage> findAll(Long stockItemId, Long userId, LocalDate from, LocalDate to, Sort sort) {
+        Specification<Usage> spec = Specification.allOf(
+                QuerySpecifications.equalTo("stockItemId", stockItemId),
+                QuerySpecifications.equalTo("user.id", userId),
+                QuerySpecifications.dateInRange("date", from, to));
+        List<Usage> usages = usageRepository.findAll(spec, QuerySpecifications.validateSort(sort, SORTABLE_FIELDS));
+        usages.forEach(usage -> Hibernate.initialize(usage.getUser()));
+        return usages;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Usage> findById(Long id) {
+        Optional<Usage> usage = usageRepository.findById(id);
+        usage.ifPresent(u -> Hibernate.initialize(u.getUser()));
+        return usage;
+    }
+
+    @Transactional
+    public Usage record(Usage usage, User user) {
+        // Set current date if not provided
+        if (usage.getDate() == null) {
+            usage.setDate(LocalDate.now());
+        }
+
+        Long stockItemId = usage.getStockItemId();
+        if (stockItemId == null) {
+            throw new BadRequestException("Stock item ID cannot be null");
+        }
+        StockItem stockItem = stockRepository.findById(stockItemId)
+                .orElseThrow(() -> new BadRequestException("Stock item not found with ID: " + stockItemId));
+
+        // Check if there's enough quantity
+        if (stockItem.getQuantityMilli() < usage.getQuantityUsedMilli()) {
+            throw new BadRequestException("Insufficient stock. Available: " + stockItem.getQuantity()
+                    + ", Requested: " + usage.getQuantityUsed());
+        }
+        // Without an authenticated user the usage is saved without user info
+        usage.setUser(user);
+
+        // Another usage may have taken the stock since the check above
+        Change change = stockQuantityService.adjust(stockItemId, -usage.getQuantityUsedMilli())
+                .orElseThrow(() -> new BadRequestException("Insufficient stock for requested quantity: " + usage.getQuantityUsed()));
+        inventoryValuationService.recordIssue(stockItem, usage.getQuantityUsed());
+        stockLotService.consume(stockItemId, usage.getQuantityUsedMilli());
+
+        Usage savedUsage = usageRepository.save(usage);
+        stockAuditLog.record(StockAuditAction.USAGE, stockItemId, change.quantityBefore(), change.quantityAfter(), savedUsage.getId());
+        reportCache.evict(savedUsage.getDate());
+        return savedUsage;
+    }
+
+    /**
+     * Updates a usage recorded by {@code username} and moves the stock by the difference.
+     * Returns empty when there is no such usage.
+     */
+    @Transactional
+    public Optional<Usage> update(Long id, String ifMatch, Usage usage, String username) {
+        Optional<Usage> existingUsageOpt = usageRepository.findById(id);
+        if (existingUsageOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        Usage existingUsage = existingUsageOpt.get();
+
+        // Verify user is authorized to update this record
+        if (existingUsage.getUser() != null && !existingUsage.getUser().getUsername().equals(username)) {
+            throw new AccessDeniedException("You are not authorized to update this record");
+        }
+        EntityTags.check(ifMatch, existingUsage.getVersion());
+
+        Long stockItemId = usage.getStockItemId();
+        if (stockItemId == null) {
+            throw new BadRequestException("Stock item ID cannot be null");
+        }
+        StockItem stockItem = stockRepository.findById(stockItemId)
+                .orElseThrow(() -> new BadRequestException("Stock item not found with ID: " + stockItemId));
+
+        // Calculate the net change in quantity
+        long quantityDifferenceMilli = usage.getQuantityUsedMilli() - existingUsage.getQuantityUsedMilli();
+        double quantityDifference = FixedPoint.fromMilli(quantityDifferenceMilli);
+
+        // Check if there's enough quantity for the update
+        if (stockItem.getQuantityMilli() < quantityDifferenceMilli) {
+            throw new BadRequestException("Insufficient stock. Available: " + stockItem.getQuantity()
+                    + ", Additional quantity needed: " + quantityDifference);
+        }
+
+        Change change = stockQuantityService.adjust(stockItemId, -quantityDifferenceMilli)
+                .orElseThrow(() -> new BadRequestException("Insufficient stock. Additional quantity needed: " + quantityDifference));
+        if (quantityDifferenceMilli > 0) {
+            inventoryValuationService.recordIssue(stockItem, quantityDifference);
+            stockLotService.consume(stockItemId, quantityDifferenceMilli);
+        } else if (quantityDifferenceMilli < 0) {
+            inventoryValuationService.recordReturn(stockItem, -quantityDifference, existingUsage.getDate());
+            stockLotService.restore(stockItemId, -quantityDifferenceMilli);
+        }
+        stockAuditLog.record(StockAuditAction.USAGE_UPDATE, stockItemId, change.quantityBefore(), change.quantityAfter(), id);
+
+        LocalDate previousDate = existingUsage.getDate();
+        existingUsage.setStockItemId(usage.getStockItemId());
+        existingUsage.setQuantityUsed(usage.getQuantityUsed());
+        existingUsage.setDate(usage.getDate() != null ? usage.getDate() : existingUsage.getDate());
+        // Flushed here so the response carries the new version
+        Usage updatedUsage = usageRepository.saveAndFlush(existingUsage);
+        reportCache.evict(previousDate);
+        reportCache.evict(updatedUsage.getDate());
+        return Optional.of(updatedUsage);
+    }
+
+    /**
+     * Deletes a usage and returns its stock. Returns the deleted usage, or empty when there is no
+     * such usage.
+     */
+    @Transactional
+    public Optional<Usage> delete(Long id) {
+        Optional<Usage> existingUsage = usageRepository.findById(id);
+        existingUsage.ifPresent(usage -> {
+            // Restore the stock quantity before deleting
+            stockRepository.findById(usage.getStockItemId()).ifPresent(stockItem ->
+                    stockQuantityService.adjust(stockItem.getId(), usage.getQuantityUsedMilli()).ifPresent(change -> {
+                        inventoryValuationService.recordReturn(stockItem, usage.getQuantityUsed(), usage.getDate());
+                        stockLotService.restore(stockItem.getId(), usage.getQuantityUsedMilli());
+                        stockAuditLog.record(StockAuditAction.USAGE_DELETE, stockItem.getId(), change.quantityBefore(), change.quantityAfter(), id);
+                    }));
+            usageRepository.delete(usage);
+            syncService.recordDeletion(SyncEntity.USAGE, id);
+            reportCache.evict(usage.getDate());
+        });
+        return existingUsage;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.config.JwtFilter;
+import com.ms.ges.repository.CostLayerRepository;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.TombstoneRepository;
+import com.ms.ges.service.BranchContext;
+import com.ms.ges.service.JwtService;
+
+/**
+ * Two branches sharing one database see only their own rows, through the API as well as through
+ * the bulk JPQL statements, and a request for a branch that is not configured is rejected.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:branches",
+        "branches.names=main,north"
+})
+@AutoConfigureMockMvc
+class BranchIsolationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private CostLayerRepository costLayerRepository;
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    private String mainToken;
+    private String northToken;
+
+    @BeforeEach
+    void setUp() {
+        mainToken = token("main");
+        northToken = token("north");
+    }
+
+    @Test
+    void readsAndUpdatesSeeOnlyTheirOwnBranch() throws Exception {
+        long northId = createStockItem(northToken, "North only beans");
+
+        mockMvc.perform(get("/api/stocks").header("Authorization", mainToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + northId + ")]").isEmpty());
+        mockMvc.perform(get("/api/stocks/" + northId).header("Authorization", mainToken))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/api/stocks/" + northId).header("Authorization", mainToken)
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Taken over\",\"category\":\"Dry goods\",\"quantity\":1,\"unitPrice\":1,\"reorderLevel\":0}"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/stocks/" + northId).header("Authorization", northToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("North only beans"))
+                .andExpect(jsonPath("$.quantity").value(5.0));
+        mockMvc.perform(get("/api/stocks").header("Authorization", northToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + northId + ")]").isNotEmpty());
+    }
+
+    @Test
+    void bulkStatementsLeaveOtherBranchesAlone() throws Exception {
+        long northId = createStockItem(northToken, "North bulk lentils");
+        long deletedNorthId = createStockItem(northToken, "North bulk deleted");
+        mockMvc.perform(delete("/api/stocks/" + deletedNorthId).header("Authorization", northToken))
+                .andExpect(status().isOk());
+        long northLayers = count("SELECT COUNT(*) FROM cost_layers WHERE stock_item_id = ?", northId);
+        long northTombstones = count("SELECT COUNT(*) FROM sync_tombstones WHERE branch = ?", "north");
+        assertTrue(northLayers > 0);
+        assertTrue(northTombstones > 0);
+
+        int adjusted = BranchContext.call("main", () -> transactionTemplate.execute(status -> {
+            int rows = stockRepository.adjustQuantity(northId, -1_000L, 1L);
+            costLayerRepository.deleteByStockItemId(northId);
+            tombstoneRepository.deleteThroughSeq(Long.MAX_VALUE);
+            return rows;
+        }));
+
+        assertEquals(0, adjusted);
+        assertEquals(5_000L, count("SELECT quantity_milli FROM stock_items WHERE id = ?", northId));
+        assertEquals(northLayers, count("SELECT COUNT(*) FROM cost_layers WHERE stock_item_id = ?", northId));
+        assertEquals(northTombstones, count("SELECT COUNT(*) FROM sync_tombstones WHERE branch = ?", "north"));
+    }
+
+    @Test
+    void unknownBranchIsRejected() throws Exception {
+        mockMvc.perform(post("/api/auth/login").header(JwtFilter.BRANCH_HEADER, "atlantis")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"password\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown branch"));
+    }
+
+    private String token(String branch) {
+        return "Bearer " + jwtService.generateToken(BranchContext.call(branch, () -> userDetailsService.loadUserByUsername("admin")));
+    }
+
+    private long createStockItem(String token, String name) throws Exception {
+        String response = mockMvc.perform(post("/api/stocks").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"category\":\"Dry goods\",\"quantity\":5,\"unitPrice\":2,\"reorderLevel\":0}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private long count(String sql, Object argument) {
+        return jdbcTemplate.queryForObject(sql, Long.class, argument);
+    }
+}
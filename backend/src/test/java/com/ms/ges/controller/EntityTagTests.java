@@ -0,0 +1,164 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.service.InventoryValuationService;
+import com.ms.ges.service.JwtService;
+
+/**
+ * Updates need the entity tag from the last read: none is 428, a stale one is 412, also when the
+ * record changes after the check, which the version condition in the UPDATE catches.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EntityTagTests {
+
+    private static final String UPDATE = "{\"name\":\"ETag oats\",\"category\":\"Dry goods\",\"quantity\":8,\"unitPrice\":1,\"reorderLevel\":0}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @MockitoSpyBean
+    private InventoryValuationService inventoryValuationService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void updateWithoutIfMatchIsRejected() throws Exception {
+        long id = createStockItem("ETag no header");
+
+        mockMvc.perform(put("/api/stocks/" + id).header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isPreconditionRequired());
+    }
+
+    @Test
+    void updateWithStaleTagIsRejected() throws Exception {
+        long id = createStockItem("ETag stale");
+        String etag = etag(id);
+        use(id);
+
+        mockMvc.perform(put("/api/stocks/" + id).header("Authorization", token)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void usageCommittedAfterTheCheckFailsTheUpdate() throws Exception {
+        long id = createStockItem("ETag concurrent");
+        String etag = etag(id);
+
+        // Runs once the update has checked the tag against the loaded item, before it is written
+        AtomicReference<Exception> usageFailure = new AtomicReference<>();
+        doAnswer(invocation -> {
+            Thread usage = new Thread(() -> {
+                try {
+                    use(id);
+                } catch (Exception e) {
+                    usageFailure.set(e);
+                }
+            });
+            usage.start();
+            usage.join();
+            return invocation.callRealMethod();
+        }).when(inventoryValuationService).recordAdjustment(any(StockItem.class), anyDouble());
+
+        mockMvc.perform(put("/api/stocks/" + id).header("Authorization", token)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isPreconditionFailed());
+        if (usageFailure.get() != null) {
+            throw usageFailure.get();
+        }
+
+        mockMvc.perform(get("/api/stocks/" + id).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("ETag concurrent"))
+                .andExpect(jsonPath("$.quantity").value(9.0));
+    }
+
+    @Test
+    void updateReturnsTheNewTag() throws Exception {
+        long id = createStockItem("ETag fresh");
+        String etag = etag(id);
+
+        String updated = mockMvc.perform(put("/api/stocks/" + id).header("Authorization", token)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotNull(updated);
+        assertNotEquals(etag, updated);
+        mockMvc.perform(get("/api/stocks/" + id).header("Authorization", token))
+                .andExpect(header().string(HttpHeaders.ETAG, updated));
+    }
+
+    private String etag(long id) throws Exception {
+        String etag = mockMvc.perform(get("/api/stocks/" + id).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void use(long id) throws Exception {
+        mockMvc.perform(post("/api/usages").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stockItemId\":" + id + ",\"quantityUsed\":1}"))
+                .andExpect(status().isOk());
+    }
+
+    private long createStockItem(String name) throws Exception {
+        String response = mockMvc.perform(post("/api/stocks").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"category\":\"Dry goods\",\"quantity\":10,\"unitPrice\":1,\"reorderLevel\":0}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ms.ges.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ms.ges.model.StockItem;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.service.JwtService;
+
+/**
+ * Sums of decimal amounts that drift in binary floating point, such as ten times 0.1, must come
+ * back exact.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExactTotalsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void monthlyExpensesAddUpExactly() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(post("/api/expenses").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"category\":\"Supplies\",\"amount\":0.1,\"description\":\"exact\",\"date\":\"2031-01-15\"}"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/reports/monthly").param("month", "2031-01").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expenses").value(1.0));
+    }
+
+    @Test
+    void purchaseTotalAndStockAreExact() throws Exception {
+        StockItem stockItem = stockRepository.findAll().get(0);
+        long quantityBefore = stockItem.getQuantityMilli();
+        String item = "{\"stockItemId\":" + stockItem.getId() + ",\"quantity\":0.1,\"price\":0.1}";
+
+        mockMvc.perform(post("/api/purchases").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"supplierId\":1,\"date\":\"2031-02-10\",\"items\":["
+                                + String.join(",", Collections.nCopies(3, item)) + "]}"))
+                .andExpect(status().isOk())
+                // Three times 0.1 at 0.1 is 0.03, where doubles give 0.030000000000000006
+                .andExpect(jsonPath("$.totalAmount").value(0.03));
+
+        mockMvc.perform(get("/api/stocks/" + stockItem.getId()).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value((quantityBefore + 300) / 1000.0));
+    }
+}
@@ -0,0 +1,180 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.service.IdempotencyService;
+import com.ms.ges.service.InventoryValuationService;
+import com.ms.ges.service.JwtService;
+
+/**
+ * A repeated Idempotency-Key gets the first response back instead of recording the usage again,
+ * also when the duplicate arrives while the first request is still running, and the same key with
+ * a different body is rejected.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotencyTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @MockitoSpyBean
+    private InventoryValuationService inventoryValuationService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void repeatedKeyReplaysTheFirstResponse() throws Exception {
+        long stockItemId = createStockItem("Idempotent replay oats");
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = use(key, stockItemId, 1);
+        MockHttpServletResponse second = use(key, stockItemId, 1);
+
+        assertEquals(200, first.getStatus());
+        assertNull(first.getHeader(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(200, second.getStatus());
+        assertEquals("true", second.getHeader(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(id(first), id(second));
+        assertQuantity(stockItemId, 9.0);
+    }
+
+    @Test
+    void reusedKeyWithDifferentBodyIsRejected() throws Exception {
+        long stockItemId = createStockItem("Idempotent mismatch oats");
+        String key = UUID.randomUUID().toString();
+        use(key, stockItemId, 1);
+
+        mockMvc.perform(post("/api/usages").header("Authorization", token)
+                        .header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(usage(stockItemId, 2)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(IdempotencyService.HEADER + " was already used with a different request body"));
+        assertQuantity(stockItemId, 9.0);
+    }
+
+    @Test
+    void duplicateWhileTheFirstIsRunningWaitsForItsResult() throws Exception {
+        long stockItemId = createStockItem("Idempotent concurrent oats");
+        String key = UUID.randomUUID().toString();
+
+        // Holds the first request inside its transaction until the duplicate has arrived
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            firstRunning.countDown();
+            assertTrue(releaseFirst.await(10, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).when(inventoryValuationService).recordIssue(any(StockItem.class), anyDouble());
+
+        AtomicReference<MockHttpServletResponse> firstResponse = new AtomicReference<>();
+        AtomicReference<MockHttpServletResponse> duplicateResponse = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread first = request(key, stockItemId, firstResponse, failure);
+        first.start();
+        assertTrue(firstRunning.await(10, TimeUnit.SECONDS));
+
+        Thread duplicate = request(key, stockItemId, duplicateResponse, failure);
+        duplicate.start();
+        duplicate.join(300);
+        assertTrue(duplicate.isAlive(), "Duplicate did not wait for the first request");
+
+        releaseFirst.countDown();
+        first.join(10_000);
+        duplicate.join(10_000);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        assertEquals(200, firstResponse.get().getStatus());
+        assertEquals(200, duplicateResponse.get().getStatus());
+        assertEquals("true", duplicateResponse.get().getHeader(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(id(firstResponse.get()), id(duplicateResponse.get()));
+        assertQuantity(stockItemId, 9.0);
+    }
+
+    private Thread request(String key, long stockItemId, AtomicReference<MockHttpServletResponse> response,
+                           AtomicReference<Exception> failure) {
+        return new Thread(() -> {
+            try {
+                response.set(use(key, stockItemId, 1));
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+    }
+
+    private MockHttpServletResponse use(String key, long stockItemId, double quantity) throws Exception {
+        return mockMvc.perform(post("/api/usages").header("Authorization", token)
+                        .header(IdempotencyService.HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(usage(stockItemId, quantity)))
+                .andReturn().getResponse();
+    }
+
+    private static String usage(long stockItemId, double quantity) {
+        return "{\"stockItemId\":" + stockItemId + ",\"quantityUsed\":" + quantity + "}";
+    }
+
+    private long id(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readTree(response.getContentAsString()).get("id").asLong();
+    }
+
+    private void assertQuantity(long stockItemId, double quantity) throws Exception {
+        mockMvc.perform(get("/api/stocks/" + stockItemId).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(quantity));
+    }
+
+    private long createStockItem(String name) throws Exception {
+        String response = mockMvc.perform(post("/api/stocks").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"category\":\"Dry goods\",\"quantity\":10,\"unitPrice\":1,\"reorderLevel\":0}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
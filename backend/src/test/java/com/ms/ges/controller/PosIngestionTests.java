@@ -0,0 +1,246 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.repository.PosIngestStateRepository;
+import com.ms.ges.service.Branches;
+import com.ms.ges.service.BusinessMetrics;
+import com.ms.ges.service.JwtService;
+import com.ms.ges.service.PosIngestionService;
+import com.ms.ges.service.PosIngestionService.PosEvent;
+import com.ms.ges.service.ReportCache;
+import com.ms.ges.service.SaleService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Events acknowledged before a restart are applied exactly once, a line torn by a crash does not
+ * swallow later events, an event that can never apply is set aside instead of blocking the rest,
+ * and a full queue turns requests away with 503. The service is built by hand on its own log
+ * directory to stand in for a restarted node; the context's own service has a queue of three that
+ * is never drained.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pos",
+        "pos.queue-capacity=3",
+        "pos.flush-interval=1h"
+})
+@AutoConfigureMockMvc
+class PosIngestionTests {
+
+    @DynamicPropertySource
+    static void logDirectory(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("pos-context");
+        registry.add("pos.log-directory", directory::toString);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SaleService saleService;
+
+    @Autowired
+    private PosIngestStateRepository stateRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private BusinessMetrics businessMetrics;
+
+    @Autowired
+    private Branches branches;
+
+    private String token;
+    private long adminId;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+        adminId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'admin'", Long.class);
+    }
+
+    @Test
+    void acknowledgedEventsAreAppliedExactlyOnceAcrossRestarts() throws Exception {
+        long stockItemId = createStockItem("POS replay flour", 10);
+        long cursor = cursor();
+        Path directory = Files.createTempDirectory("pos-replay");
+        List<PosEvent> logged = List.of(use(cursor + 1, stockItemId), use(cursor + 2, stockItemId), use(cursor + 3, stockItemId));
+        writeLog(directory, lines(logged));
+
+        PosIngestionService first = service(directory, Duration.ofMillis(10));
+        first.start();
+        first.stop();
+        assertEquals(7_000L, quantityMilli(stockItemId));
+
+        // As if the node crashed after applying the events but before the log was truncated
+        writeLog(directory, lines(logged) + lines(List.of(use(cursor + 4, stockItemId))));
+        PosIngestionService second = service(directory, Duration.ofMillis(10));
+        second.start();
+        assertEquals(6_000L, quantityMilli(stockItemId));
+
+        List<PosEvent> accepted = second.accept(List.of(use(0, stockItemId)));
+        assertEquals(cursor + 5, accepted.get(0).seq());
+        awaitDrained(second);
+        second.stop();
+        assertEquals(5_000L, quantityMilli(stockItemId));
+        assertEquals(cursor + 5, cursor());
+    }
+
+    @Test
+    void tornLastLineIsIgnored() throws Exception {
+        long stockItemId = createStockItem("POS torn sugar", 10);
+        long cursor = cursor();
+        Path directory = Files.createTempDirectory("pos-torn");
+        String torn = objectMapper.writeValueAsString(use(cursor + 2, stockItemId));
+        writeLog(directory, lines(List.of(use(cursor + 1, stockItemId))) + torn.substring(0, torn.length() / 2));
+
+        // Never drained on its own, so the log still holds what was appended after the torn line
+        PosIngestionService service = service(directory, Duration.ofHours(1));
+        service.start();
+        assertEquals(9_000L, quantityMilli(stockItemId));
+
+        service.accept(List.of(use(0, stockItemId)));
+        List<String> lines = Files.readAllLines(directory.resolve("ingest.log"));
+        assertEquals(1, lines.size());
+        assertEquals(cursor + 2, objectMapper.readValue(lines.get(0), PosEvent.class).seq());
+
+        service.stop();
+        PosIngestionService restarted = service(directory, Duration.ofMillis(10));
+        restarted.start();
+        restarted.stop();
+        assertEquals(8_000L, quantityMilli(stockItemId));
+    }
+
+    @Test
+    void eventThatCanNeverApplyIsDeadLettered() throws Exception {
+        long stockItemId = createStockItem("POS dead letter salt", 10);
+        long cursor = cursor();
+        Path directory = Files.createTempDirectory("pos-dead-letter");
+        PosEvent deletedUser = new PosEvent(cursor + 1, "main", 999_999L, null, stockItemId, 1, LocalDate.now());
+        writeLog(directory, lines(List.of(deletedUser, use(cursor + 2, stockItemId))));
+
+        PosIngestionService service = service(directory, Duration.ofMillis(10));
+        assertTimeoutPreemptively(Duration.ofSeconds(30), service::start);
+        assertEquals(9_000L, quantityMilli(stockItemId));
+        assertEquals(cursor + 2, cursor());
+        assertEquals(1L, service.status().get("deadLettered"));
+
+        List<String> deadLetters = Files.readAllLines(directory.resolve("dead-letter.log"));
+        assertEquals(1, deadLetters.size());
+        assertEquals(cursor + 1, objectMapper.readTree(deadLetters.get(0)).get("event").get("seq").asLong());
+
+        service.accept(List.of(use(0, stockItemId)));
+        awaitDrained(service);
+        service.stop();
+        assertEquals(8_000L, quantityMilli(stockItemId));
+    }
+
+    @Test
+    void fullQueueIsRejectedWithRetryAfter() throws Exception {
+        long stockItemId = createStockItem("POS backpressure rice", 10);
+        String event = "{\"stockItemId\":" + stockItemId + ",\"quantity\":1}\n";
+
+        mockMvc.perform(post("/api/pos/events").header("Authorization", token)
+                        .contentType(PosController.NDJSON)
+                        .content(event.repeat(3)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post("/api/pos/events").header("Authorization", token)
+                        .contentType(PosController.NDJSON)
+                        .content(event))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    private PosIngestionService service(Path directory, Duration flushInterval) {
+        return new PosIngestionService(saleService, stateRepository, transactionTemplate, reportCache, businessMetrics,
+                branches, objectMapper, new SimpleMeterRegistry(), directory.toString(), 100, 50, flushInterval, 2);
+    }
+
+    private PosEvent use(long seq, long stockItemId) {
+        return new PosEvent(seq, "main", adminId, null, stockItemId, 1, LocalDate.now());
+    }
+
+    private String lines(List<PosEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (PosEvent event : events) {
+            lines.append(objectMapper.writeValueAsString(event)).append('\n');
+        }
+        return lines.toString();
+    }
+
+    private void writeLog(Path directory, String content) throws IOException {
+        Files.writeString(directory.resolve("ingest.log"), content, StandardCharsets.UTF_8);
+    }
+
+    private void awaitDrained(PosIngestionService service) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (service.queueDepth() > 0) {
+            assertTrue(System.nanoTime() < deadline, "POS queue did not drain");
+            Thread.sleep(20);
+        }
+    }
+
+    private long cursor() {
+        List<Long> cursors = jdbcTemplate.queryForList(
+                "SELECT applied_through_seq FROM pos_ingest_state WHERE branch = 'main'", Long.class);
+        return cursors.isEmpty() ? 0 : cursors.get(0);
+    }
+
+    private long quantityMilli(long stockItemId) {
+        return jdbcTemplate.queryForObject("SELECT quantity_milli FROM stock_items WHERE id = ?", Long.class, stockItemId);
+    }
+
+    private long createStockItem(String name, double quantity) throws Exception {
+        String response = mockMvc.perform(post("/api/stocks").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"category\":\"Dry goods\",\"quantity\":" + quantity
+                                + ",\"unitPrice\":1,\"reorderLevel\":0}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ms.ges.service.JwtService;
+
+/**
+ * A new caller gets the full burst at once, is then turned away with 429 and a Retry-After, and
+ * gets one more request per refill interval. Buckets are per route, with ids collapsed.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ratelimit",
+        "rate-limit.staff.capacity=3",
+        "rate-limit.staff.refill-per-second=0.5"
+})
+@AutoConfigureMockMvc
+class RateLimitTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("staff"));
+    }
+
+    @Test
+    void burstIsAllowedThenRejectedWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/stocks").header("Authorization", token)).andExpect(status().isOk());
+        }
+
+        String retryAfter = mockMvc.perform(get("/api/stocks").header("Authorization", token))
+                .andExpect(status().isTooManyRequests())
+                .andReturn().getResponse().getHeader("Retry-After");
+        // The next token is at most two seconds away, less whatever the burst took
+        assertNotNull(retryAfter);
+        assertTrue(Integer.parseInt(retryAfter) >= 1 && Integer.parseInt(retryAfter) <= 2);
+        // Another route has a bucket of its own
+        mockMvc.perform(get("/api/suppliers").header("Authorization", token)).andExpect(status().isOk());
+    }
+
+    @Test
+    void bucketRefillsOneTokenPerInterval() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(get("/api/stocks/" + (999_990 + i)).header("Authorization", token))
+                    .andExpect(status().isNotFound());
+        }
+        mockMvc.perform(get("/api/stocks/999999").header("Authorization", token))
+                .andExpect(status().isTooManyRequests());
+
+        // A token every two seconds
+        Thread.sleep(2_100);
+        mockMvc.perform(get("/api/stocks/999999").header("Authorization", token))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/stocks/999999").header("Authorization", token))
+                .andExpect(status().isTooManyRequests());
+    }
+}
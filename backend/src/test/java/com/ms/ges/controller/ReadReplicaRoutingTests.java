@@ -0,0 +1,118 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.service.JwtService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Reads go to the replicas and skip one that is down, report jobs included, while a user's reads
+ * right after their own write stay on the primary. A second pool on the test database stands in for a replica.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicas",
+        "replicas.urls=jdbc:h2:tcp://localhost:1/unreachable,jdbc:h2:mem:replicas",
+        "replicas.read-your-writes-window=1m",
+        "replicas.retry-interval=1h"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void readsGoToTheReplicaThatIsUp() throws Exception {
+        String token = token("staff");
+        double replicaReads = reads("replica", "replica-2");
+
+        for (int i = 0; i < 4; i++) {
+            mockMvc.perform(get("/api/stocks").header("Authorization", token)).andExpect(status().isOk());
+        }
+
+        assertTrue(reads("replica", "replica-2") - replicaReads >= 4);
+        assertEquals(0, reads("replica", "replica-1"));
+    }
+
+    @Test
+    void readsAfterOwnWriteStayOnThePrimary() throws Exception {
+        String token = token("manager");
+        mockMvc.perform(post("/api/expenses").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"Supplies\",\"amount\":2.5,\"description\":\"replica\",\"date\":\"2031-03-01\"}"))
+                .andExpect(status().isOk());
+        double replicaReads = reads("replica", "replica-2");
+        double pinnedReads = reads("primary", "pinned");
+
+        mockMvc.perform(get("/api/expenses").header("Authorization", token)).andExpect(status().isOk());
+
+        assertEquals(replicaReads, reads("replica", "replica-2"));
+        assertTrue(reads("primary", "pinned") > pinnedReads);
+    }
+
+    @Test
+    void reportJobsReadFromTheReplica() throws Exception {
+        String token = token("admin");
+        double replicaReads = reads("replica", "replica-2");
+
+        String response = mockMvc.perform(post("/api/reports/jobs").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"SUMMARY\",\"from\":\"2030-01-01\",\"to\":\"2030-03-31\",\"grouping\":\"MONTH\"}"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(response).get("id").asText();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        String jobStatus;
+        do {
+            assertTrue(System.nanoTime() < deadline, "Report job did not finish");
+            Thread.sleep(20);
+            String job = mockMvc.perform(get("/api/reports/jobs/" + id).header("Authorization", token))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            jobStatus = objectMapper.readTree(job).get("status").asText();
+        } while (jobStatus.equals("QUEUED") || jobStatus.equals("RUNNING"));
+
+        assertEquals("COMPLETED", jobStatus);
+        // One transaction per month
+        assertTrue(reads("replica", "replica-2") - replicaReads >= 3);
+    }
+
+    private String token(String username) {
+        return "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername(username));
+    }
+
+    private double reads(String target, String detail) {
+        Counter counter = meterRegistry.find("ges.datasource.reads").tag("target", target).tag("detail", detail).counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
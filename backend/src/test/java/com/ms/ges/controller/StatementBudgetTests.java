@@ -0,0 +1,162 @@
+package com.ms.ges.controller;
+
+import static com.ms.ges.support.SqlStatementBudget.atMost;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ms.ges.model.Purchase;
+import com.ms.ges.model.PurchaseItem;
+import com.ms.ges.model.Recipe;
+import com.ms.ges.model.RecipeIngredient;
+import com.ms.ges.model.StockItem;
+import com.ms.ges.model.Usage;
+import com.ms.ges.model.User;
+import com.ms.ges.repository.PurchaseRepository;
+import com.ms.ges.repository.RecipeRepository;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.repository.UsageRepository;
+import com.ms.ges.repository.UserRepository;
+import com.ms.ges.service.JwtService;
+
+/**
+ * Fails when a list endpoint starts issuing one query per row. Each endpoint is called with
+ * more rows than its budget, so an N+1 pattern cannot stay under it.
+ */
+@SpringBootTest(properties = "sql.statements.header-enabled=true")
+@AutoConfigureMockMvc
+class StatementBudgetTests {
+
+    private static final int ROWS = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    @Autowired
+    private UsageRepository usageRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+        if (purchaseRepository.count() >= ROWS) {
+            return;
+        }
+
+        List<StockItem> stockItems = stockRepository.findAll();
+        List<User> users = userRepository.findAll();
+        for (int i = 0; i < ROWS; i++) {
+            Purchase purchase = new Purchase();
+            purchase.setSupplierId(1L);
+            purchase.setDate(LocalDate.now().minusDays(i));
+            purchase.setTotalAmount(10.0);
+            for (StockItem stockItem : stockItems) {
+                PurchaseItem item = new PurchaseItem();
+                item.setStockItemId(stockItem.getId());
+                item.setQuantity(1.0);
+                item.setPrice(10.0 / stockItems.size());
+                purchase.addItem(item);
+            }
+            purchaseRepository.save(purchase);
+
+            Usage usage = new Usage();
+            usage.setStockItemId(stockItems.get(i % stockItems.size()).getId());
+            usage.setQuantityUsed(0.5);
+            usage.setDate(LocalDate.now().minusDays(i));
+            usage.setUser(users.get(i % users.size()));
+            usageRepository.save(usage);
+        }
+    }
+
+    @Test
+    void purchaseListLoadsItemsInBatches() throws Exception {
+        mockMvc.perform(get("/api/purchases").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(atMost(5));
+    }
+
+    @Test
+    void usageListLoadsUsersInBatches() throws Exception {
+        mockMvc.perform(get("/api/usages").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(atMost(5));
+    }
+
+    @Test
+    void stockList() throws Exception {
+        mockMvc.perform(get("/api/stocks").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(atMost(3));
+    }
+
+    @Test
+    void salesAreAppliedPerIngredientNotPerDish() throws Exception {
+        Recipe recipe = new Recipe();
+        recipe.setName("Budget plate");
+        for (StockItem stockItem : stockRepository.findAll()) {
+            RecipeIngredient ingredient = new RecipeIngredient();
+            ingredient.setStockItemId(stockItem.getId());
+            ingredient.setQuantity(0.01);
+            recipe.getIngredients().add(ingredient);
+        }
+        Long recipeId = recipeRepository.findAll().stream()
+                .filter(existing -> existing.getName().equals(recipe.getName()))
+                .findFirst()
+                .orElseGet(() -> recipeRepository.save(recipe))
+                .getId();
+
+        String sale = "{\"recipeId\":" + recipeId + ",\"quantity\":1}";
+        // The first sale loads the recipe catalog and opens the valuation rows
+        mockMvc.perform(post("/api/sales").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sales\":[" + sale + "]}"))
+                .andExpect(status().isOk());
+
+        String sales = String.join(",", Collections.nCopies(ROWS, sale));
+        mockMvc.perform(post("/api/sales").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"sales\":[" + sales + "]}"))
+                .andExpect(status().isOk())
+                // A fixed few for the sale, whatever the number of ingredients
+                .andExpect(atMost(12));
+    }
+
+    @Test
+    void syncFeed() throws Exception {
+        mockMvc.perform(get("/api/sync").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(atMost(10));
+    }
+}
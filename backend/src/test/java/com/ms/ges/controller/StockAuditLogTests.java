@@ -0,0 +1,129 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ms.ges.model.StockAuditAction;
+import com.ms.ges.repository.StockAuditEventRepository;
+import com.ms.ges.service.StockAuditLog;
+import com.ms.ges.service.StockAuditLog.Backpressure;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The ring buffer keeps events in order as it wraps around, a full buffer drops new events or,
+ * with BLOCK, waits for the writer to make room, and only committed changes are recorded. Each
+ * log is built by hand with a buffer of four and only started when a test wants it drained.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:audit")
+class StockAuditLogTests {
+
+    private static final AtomicLong STOCK_ITEM_IDS = new AtomicLong(1_000_000);
+
+    @Autowired
+    private StockAuditEventRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void eventsStayInOrderAcrossWrapAround() throws Exception {
+        long stockItemId = STOCK_ITEM_IDS.incrementAndGet();
+        StockAuditLog auditLog = auditLog(new SimpleMeterRegistry(), Backpressure.BLOCK, Duration.ofSeconds(5));
+        auditLog.start();
+
+        LongStream.rangeClosed(1, 25).forEach(reference -> record(auditLog, stockItemId, reference));
+        auditLog.stop();
+
+        assertEquals(LongStream.rangeClosed(1, 25).boxed().toList(), references(stockItemId));
+    }
+
+    @Test
+    void fullBufferDropsNewEvents() throws Exception {
+        long stockItemId = STOCK_ITEM_IDS.incrementAndGet();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StockAuditLog auditLog = auditLog(registry, Backpressure.DROP, Duration.ZERO);
+
+        LongStream.rangeClosed(1, 6).forEach(reference -> record(auditLog, stockItemId, reference));
+        assertEquals(4.0, registry.get("ges.audit.pending").gauge().value());
+        assertEquals(2.0, registry.get("ges.audit.dropped").counter().count());
+
+        auditLog.start();
+        auditLog.stop();
+        assertEquals(List.of(1L, 2L, 3L, 4L), references(stockItemId));
+    }
+
+    @Test
+    void blockWaitsForRoomAndDropsWhenItRunsOut() throws Exception {
+        long stockItemId = STOCK_ITEM_IDS.incrementAndGet();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StockAuditLog auditLog = auditLog(registry, Backpressure.BLOCK, Duration.ofSeconds(1));
+        LongStream.rangeClosed(1, 4).forEach(reference -> record(auditLog, stockItemId, reference));
+
+        long started = System.nanoTime();
+        record(auditLog, stockItemId, 5);
+        assertTrue(System.nanoTime() - started >= Duration.ofMillis(900).toNanos());
+        assertEquals(1.0, registry.get("ges.audit.dropped").counter().count());
+
+        // Room is made while the producer waits
+        Thread producer = new Thread(() -> record(auditLog, stockItemId, 6));
+        producer.start();
+        producer.join(50);
+        assertTrue(producer.isAlive());
+        auditLog.start();
+        producer.join(5_000);
+        auditLog.stop();
+
+        assertEquals(1.0, registry.get("ges.audit.dropped").counter().count());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 6L), references(stockItemId));
+    }
+
+    @Test
+    void onlyCommittedChangesAreRecorded() throws Exception {
+        long stockItemId = STOCK_ITEM_IDS.incrementAndGet();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StockAuditLog auditLog = auditLog(registry, Backpressure.DROP, Duration.ZERO);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            record(auditLog, stockItemId, 1);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            record(auditLog, stockItemId, 2);
+            assertEquals(0.0, registry.get("ges.audit.pending").gauge().value());
+        });
+        assertEquals(1.0, registry.get("ges.audit.pending").gauge().value());
+
+        auditLog.start();
+        auditLog.stop();
+        assertEquals(List.of(2L), references(stockItemId));
+    }
+
+    private StockAuditLog auditLog(MeterRegistry registry, Backpressure backpressure, Duration blockTimeout) {
+        return new StockAuditLog(repository, registry, 4, 2, backpressure, blockTimeout, Duration.ofMillis(5));
+    }
+
+    private static void record(StockAuditLog auditLog, long stockItemId, long reference) {
+        auditLog.record(StockAuditAction.MANUAL_EDIT, stockItemId, 1.0, 2.0, reference);
+    }
+
+    private List<Long> references(long stockItemId) {
+        return jdbcTemplate.queryForList("SELECT reference_id FROM stock_audit_events WHERE stock_item_id = ? ORDER BY id",
+                Long.class, stockItemId);
+    }
+}
@@ -0,0 +1,185 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.model.StockLot;
+import com.ms.ges.repository.StockLotRepository;
+import com.ms.ges.service.JwtService;
+
+/**
+ * Usage takes the lots that expire first, also when the lots kept in memory are behind the
+ * database, and the expiring endpoint lists what is left of them. Usage that is reduced or deleted
+ * goes back into the lots it was drawn from, last drawn first.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class StockLotTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private StockLotRepository stockLotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void usageDrawsTheEarliestExpiringLotFirst() throws Exception {
+        long stockItemId = createStockItem("Lot test milk");
+        LocalDate today = LocalDate.now();
+        receive(stockItemId, 5, today.plusDays(20));
+        receive(stockItemId, 5, today.plusDays(4));
+
+        use(stockItemId, 7);
+
+        Map<LocalDate, Long> remaining = remainingByExpiry(stockItemId);
+        assertEquals(0L, remaining.get(today.plusDays(4)));
+        assertEquals(3_000L, remaining.get(today.plusDays(20)));
+
+        mockMvc.perform(get("/api/stocks/expiring").param("days", "30").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.stockItemId == " + stockItemId + ")].remainingQuantity").value(3.0));
+        mockMvc.perform(get("/api/stocks/expiring").param("days", "10").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.stockItemId == " + stockItemId + ")]").isEmpty());
+    }
+
+    @Test
+    void lotsDrawnBehindTheQueuesBackAreReloaded() throws Exception {
+        long stockItemId = createStockItem("Lot test cream");
+        LocalDate today = LocalDate.now();
+        receive(stockItemId, 4, today.plusDays(2));
+        receive(stockItemId, 4, today.plusDays(9));
+        use(stockItemId, 1);
+
+        // Taken without going through the service, so the queue in memory does not know
+        StockLot soonest = stockLotRepository.findAll().stream()
+                .filter(lot -> lot.getStockItemId() == stockItemId && lot.getExpiryDate().equals(today.plusDays(2)))
+                .findFirst().orElseThrow();
+        jdbcTemplate.update("UPDATE stock_lots SET remaining_quantity_milli = remaining_quantity_milli - 3000 WHERE id = ?",
+                soonest.getId());
+
+        use(stockItemId, 2);
+
+        Map<LocalDate, Long> remaining = remainingByExpiry(stockItemId);
+        assertEquals(0L, remaining.get(today.plusDays(2)));
+        assertEquals(2_000L, remaining.get(today.plusDays(9)));
+    }
+
+    @Test
+    void reducedUsageGoesBackToTheLotsDrawnLast() throws Exception {
+        long stockItemId = createStockItem("Lot test yoghurt");
+        LocalDate today = LocalDate.now();
+        receive(stockItemId, 5, today.plusDays(4));
+        receive(stockItemId, 5, today.plusDays(20));
+        long usageId = use(stockItemId, 7);
+
+        mockMvc.perform(put("/api/usages/" + usageId).header("Authorization", token)
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stockItemId\":" + stockItemId + ",\"quantityUsed\":4}"))
+                .andExpect(status().isOk());
+
+        // The 2 taken from the later lot go back there, the third to the earlier one
+        Map<LocalDate, Long> remaining = remainingByExpiry(stockItemId);
+        assertEquals(1_000L, remaining.get(today.plusDays(4)));
+        assertEquals(5_000L, remaining.get(today.plusDays(20)));
+
+        // The queue in memory follows, so the earlier lot is drawn first again
+        use(stockItemId, 2);
+        remaining = remainingByExpiry(stockItemId);
+        assertEquals(0L, remaining.get(today.plusDays(4)));
+        assertEquals(4_000L, remaining.get(today.plusDays(20)));
+    }
+
+    @Test
+    void deletedUsageGoesBackToItsLots() throws Exception {
+        long stockItemId = createStockItem("Lot test butter");
+        LocalDate today = LocalDate.now();
+        receive(stockItemId, 5, today.plusDays(4));
+        receive(stockItemId, 5, today.plusDays(20));
+        use(stockItemId, 2);
+        long usageId = use(stockItemId, 6);
+
+        mockMvc.perform(delete("/api/usages/" + usageId).header("Authorization", token))
+                .andExpect(status().isOk());
+
+        Map<LocalDate, Long> remaining = remainingByExpiry(stockItemId);
+        assertEquals(3_000L, remaining.get(today.plusDays(4)));
+        assertEquals(5_000L, remaining.get(today.plusDays(20)));
+        mockMvc.perform(get("/api/stocks/" + stockItemId).header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(8.0));
+    }
+
+    private long createStockItem(String name) throws Exception {
+        String response = mockMvc.perform(post("/api/stocks").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"category\":\"Dairy\",\"quantity\":0,\"unitPrice\":1,\"reorderLevel\":0}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private void receive(long stockItemId, double quantity, LocalDate expiryDate) throws Exception {
+        mockMvc.perform(post("/api/purchases").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"supplierId\":1,\"date\":\"" + LocalDate.now() + "\",\"items\":[{\"stockItemId\":"
+                                + stockItemId + ",\"quantity\":" + quantity + ",\"price\":1,\"expiryDate\":\"" + expiryDate + "\"}]}"))
+                .andExpect(status().isOk());
+    }
+
+    private long use(long stockItemId, double quantity) throws Exception {
+        String response = mockMvc.perform(post("/api/usages").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stockItemId\":" + stockItemId + ",\"quantityUsed\":" + quantity + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private Map<LocalDate, Long> remainingByExpiry(long stockItemId) {
+        return stockLotRepository.findAll().stream()
+                .filter(lot -> lot.getStockItemId() == stockItemId)
+                .collect(Collectors.toMap(StockLot::getExpiryDate, StockLot::getRemainingQuantityMilli));
+    }
+}
@@ -0,0 +1,163 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms.ges.service.JwtService;
+import com.ms.ges.service.SyncService;
+
+/**
+ * A client that keeps passing back {@code nextSince} sees every change once, page by page when the
+ * limit cuts a call short, and deletions as ids under {@code deleted}. A cursor from before pruned
+ * tombstones cannot tell what was deleted, so it is told to start over.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sync",
+        "sync.tombstone-retention=0s"
+})
+@AutoConfigureMockMvc
+class SyncTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private SyncService syncService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void deltaHoldsOnlyChangesAfterTheCursor() throws Exception {
+        long cursor = cursor();
+        long first = createStockItem("Sync first beans");
+
+        JsonNode delta = sync(cursor, 500);
+        assertEquals(List.of(first), ids(delta.get("changes").get("stockItems")));
+        assertFalse(delta.get("hasMore").asBoolean());
+
+        long second = createStockItem("Sync second beans");
+        JsonNode next = sync(delta.get("nextSince").asLong(), 500);
+        assertEquals(List.of(second), ids(next.get("changes").get("stockItems")));
+        assertTrue(next.get("nextSince").asLong() > delta.get("nextSince").asLong());
+
+        assertTrue(ids(sync(next.get("nextSince").asLong(), 500).get("changes").get("stockItems")).isEmpty());
+    }
+
+    @Test
+    void truncatedDeltaIsFollowedPageByPage() throws Exception {
+        long cursor = cursor();
+        List<Long> created = List.of(createStockItem("Sync page one"), createStockItem("Sync page two"),
+                createStockItem("Sync page three"));
+
+        List<Long> seen = new ArrayList<>();
+        JsonNode page;
+        int pages = 0;
+        do {
+            page = sync(cursor, 1);
+            seen.addAll(ids(page.get("changes").get("stockItems")));
+            cursor = page.get("nextSince").asLong();
+            pages++;
+        } while (page.get("hasMore").asBoolean());
+
+        assertEquals(created, seen);
+        assertTrue(pages >= 3);
+    }
+
+    @Test
+    void deletionIsReportedAsTombstone() throws Exception {
+        long id = createStockItem("Sync deleted beans");
+        long cursor = cursor();
+
+        mockMvc.perform(delete("/api/stocks/" + id).header("Authorization", token))
+                .andExpect(status().isOk());
+
+        JsonNode delta = sync(cursor, 500);
+        assertEquals(List.of(id), longs(delta.get("deleted").get("stockItems")));
+        assertTrue(ids(delta.get("changes").get("stockItems")).isEmpty());
+        assertTrue(longs(sync(delta.get("nextSince").asLong(), 500).get("deleted").get("stockItems")).isEmpty());
+    }
+
+    @Test
+    void cursorFromBeforePrunedTombstonesMustReset() throws Exception {
+        long id = createStockItem("Sync pruned beans");
+        long cursor = cursor();
+        mockMvc.perform(delete("/api/stocks/" + id).header("Authorization", token))
+                .andExpect(status().isOk());
+
+        syncService.pruneTombstones();
+
+        JsonNode delta = sync(cursor, 500);
+        assertTrue(delta.get("resetRequired").asBoolean());
+        assertFalse(delta.has("changes"));
+        assertTrue(delta.get("nextSince").asLong() > cursor);
+    }
+
+    private long cursor() throws Exception {
+        JsonNode delta = sync(0, 5000);
+        assertFalse(delta.get("hasMore").asBoolean());
+        return delta.get("nextSince").asLong();
+    }
+
+    private JsonNode sync(long since, int limit) throws Exception {
+        String response = mockMvc.perform(get("/api/sync").header("Authorization", token)
+                        .param("since", String.valueOf(since))
+                        .param("limit", String.valueOf(limit)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private static List<Long> ids(JsonNode rows) {
+        List<Long> ids = new ArrayList<>();
+        rows.forEach(row -> ids.add(row.get("id").asLong()));
+        return ids;
+    }
+
+    private static List<Long> longs(JsonNode values) {
+        List<Long> longs = new ArrayList<>();
+        values.forEach(value -> longs.add(value.asLong()));
+        return longs;
+    }
+
+    private long createStockItem(String name) throws Exception {
+        String response = mockMvc.perform(post("/api/stocks").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"category\":\"Dry goods\",\"quantity\":5,\"unitPrice\":1,\"reorderLevel\":0}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+}
@@ -0,0 +1,81 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ms.ges.model.StockItem;
+import com.ms.ges.repository.PurchaseRepository;
+import com.ms.ges.repository.StockRepository;
+import com.ms.ges.service.JwtService;
+
+/**
+ * A write rejected halfway must leave nothing behind, and reads must still serialize lazy
+ * associations with no session open during the response.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class TransactionBoundaryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void rejectedPurchaseItemRollsBackTheItemsBeforeIt() throws Exception {
+        StockItem stockItem = stockRepository.findAll().get(0);
+        long quantityBefore = stockItem.getQuantityMilli();
+        long purchasesBefore = purchaseRepository.count();
+
+        mockMvc.perform(post("/api/purchases").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"supplierId\":1,\"date\":\"2031-04-01\",\"items\":["
+                                + "{\"stockItemId\":" + stockItem.getId() + ",\"quantity\":5,\"price\":1},"
+                                + "{\"stockItemId\":999999,\"quantity\":5,\"price\":1}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Stock item not found with ID: 999999"));
+
+        assertEquals(quantityBefore, stockRepository.findById(stockItem.getId()).orElseThrow().getQuantityMilli());
+        assertEquals(purchasesBefore, purchaseRepository.count());
+    }
+
+    @Test
+    void lazyAssociationsAreLoadedBeforeTheResponse() throws Exception {
+        mockMvc.perform(get("/api/purchases").header("Authorization", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].items").isArray());
+        mockMvc.perform(get("/api/usages").header("Authorization", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/sync").header("Authorization", token))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,111 @@
+package com.ms.ges.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.ms.ges.service.JwtService;
+
+/**
+ * CBOR and the columnar layout carry the same values as the plain JSON list.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class WireFormatTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = "Bearer " + jwtService.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @Test
+    void cborCarriesTheSameUsagesAsJson() throws Exception {
+        JsonNode json = objectMapper.readTree(fetch("/api/usages", MediaType.APPLICATION_JSON, false));
+        byte[] cbor = mockMvc.perform(get("/api/usages").header("Authorization", token).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(json, new CBORMapper().readTree(cbor));
+        assertTrue(cbor.length < json.toString().length());
+    }
+
+    @Test
+    void columnarPurchasesSendFieldNamesOncePerArray() throws Exception {
+        JsonNode rows = objectMapper.readTree(fetch("/api/purchases", MediaType.APPLICATION_JSON, false));
+        JsonNode columnar = objectMapper.readTree(fetch("/api/purchases", MediaType.APPLICATION_JSON, true));
+
+        assertEquals(rows, expand(columnar));
+        JsonNode columns = columnar.get("columns");
+        assertTrue(columns.toString().contains("\"items\""));
+        assertEquals(rows.size(), columnar.get("rows").size());
+    }
+
+    @Test
+    void columnarCborDecodesToTheColumnarJson() throws Exception {
+        JsonNode json = objectMapper.readTree(fetch("/api/usages", MediaType.APPLICATION_JSON, true));
+        JsonNode cbor = new CBORMapper().readTree(fetch("/api/usages", MediaType.APPLICATION_CBOR, true));
+
+        assertEquals(json, cbor);
+    }
+
+    private byte[] fetch(String path, MediaType accept, boolean columnar) throws Exception {
+        return mockMvc.perform(get(path).header("Authorization", token).accept(accept)
+                        .param(ColumnarResponseAdvice.LAYOUT_PARAM, columnar ? ColumnarResponseAdvice.COLUMNAR : "rows"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    // Turns {"columns", "rows"} back into an array of objects, at every depth
+    private JsonNode expand(JsonNode node) {
+        if (node.isObject() && node.size() == 2 && node.has("columns") && node.has("rows")) {
+            List<String> names = new ArrayList<>();
+            node.get("columns").forEach(name -> names.add(name.asText()));
+            var array = objectMapper.createArrayNode();
+            for (JsonNode row : node.get("rows")) {
+                var element = array.addObject();
+                for (int i = 0; i < names.size(); i++) {
+                    element.set(names.get(i), expand(row.get(i)));
+                }
+            }
+            return array;
+        }
+        if (node.isObject()) {
+            var result = objectMapper.createObjectNode();
+            node.properties().forEach(field -> result.set(field.getKey(), expand(field.getValue())));
+            return result;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ms.ges.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class FixedPointTests {
+
+    @Test
+    void decimalsConvertWithoutBinaryError() {
+        assertEquals(100L, FixedPoint.toMilli(0.1));
+        assertEquals(300L, FixedPoint.toMilli(0.1 + 0.2));
+        assertEquals(1999L, FixedPoint.toCents(19.99));
+        assertEquals(0.3, FixedPoint.fromMilli(300L));
+        assertEquals(19.99, FixedPoint.fromCents(1999L));
+    }
+
+    @Test
+    void extraDigitsRoundHalfUp() {
+        assertEquals(1235L, FixedPoint.toMilli(1.2345));
+        assertEquals(-1235L, FixedPoint.toMilli(-1.2345));
+        assertEquals(101L, FixedPoint.toCents(1.005));
+        assertEquals(100L, FixedPoint.toCents(1.004));
+    }
+
+    @Test
+    void nullsPassThrough() {
+        assertNull(FixedPoint.toMilli((Double) null));
+        assertNull(FixedPoint.toCents((Double) null));
+        assertNull(FixedPoint.fromMilli((Long) null));
+        assertNull(FixedPoint.fromCents((Long) null));
+    }
+
+    @Test
+    void nonFiniteValuesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.toMilli(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.toCents(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void amountsRoundToTheNearestCent() {
+        // 0.333 units at 0.10 is 0.0333
+        assertEquals(3L, FixedPoint.amountCents(333L, 10L));
+        // 0.125 units at 0.20 is 0.025
+        assertEquals(3L, FixedPoint.amountCents(125L, 20L));
+        assertEquals(-3L, FixedPoint.milliCentsToCents(-2500L));
+        assertEquals(2998L, FixedPoint.amountCents(2000L, 1499L));
+    }
+
+    @Test
+    void overflowIsNotSilent() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.amountCents(Long.MAX_VALUE / 2, 3L));
+    }
+}
@@ -0,0 +1,29 @@
+package com.ms.ges.support;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import com.ms.ges.config.SqlStatementFilter;
+
+/**
+ * MockMvc matcher for the number of JDBC statements an endpoint issued. Requires
+ * {@code sql.statements.header-enabled=true} in the test context.
+ */
+public final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    public static ResultMatcher atMost(int maxStatements) {
+        return result -> {
+            String header = result.getResponse().getHeader(SqlStatementFilter.COUNT_HEADER);
+            assertNotNull(header, SqlStatementFilter.COUNT_HEADER + " missing; set sql.statements.header-enabled=true");
+            int statements = Integer.parseInt(header);
+            assertTrue(statements <= maxStatements, () -> result.getRequest().getMethod() + " "
+                    + result.getRequest().getRequestURI() + " issued " + statements
+                    + " SQL statements, budget is " + maxStatements);
+        };
+    }
+}
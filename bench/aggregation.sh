@@ -0,0 +1,73 @@
+#!/bin/bash
+
+# Measures report aggregation throughput over a seeded month of expenses, purchases and usages,
+# and checks that the totals come back exact. Expects the backend on localhost:8080.
+#
+# Usage: bench/aggregation.sh [rows-to-seed] [reports-per-type]
+
+BASE_URL=${BASE_URL:-http://localhost:8080/api}
+ROWS=${1:-2000}
+REQUESTS=${2:-200}
+MONTH=${MONTH:-2030-06}
+
+TOKEN=$(curl -s -X POST "$BASE_URL/auth/login" \
+  -H "Content-Type: application/json" \
+  -d '{"username":"admin","password":"password"}' | grep -o '"token":"[^"]*"' | cut -d'"' -f4)
+
+if [ -z "$TOKEN" ]; then
+  echo "✗ Login failed"
+  exit 1
+fi
+
+STOCK_ITEM_ID=$(curl -s -H "Authorization: Bearer $TOKEN" "$BASE_URL/stocks" | grep -o '"id":[0-9]*' | head -1 | cut -d: -f2)
+
+echo "Seeding $ROWS expenses, purchases and usages in $MONTH..."
+for i in $(seq 1 "$ROWS"); do
+  DAY=$(printf "%02d" $(( (i % 28) + 1 )))
+  curl -s -o /dev/null -X POST "$BASE_URL/expenses" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"category\":\"Supplies\",\"amount\":0.1,\"description\":\"bench $i\",\"date\":\"$MONTH-$DAY\"}"
+  curl -s -o /dev/null -X POST "$BASE_URL/purchases" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"supplierId\":1,\"date\":\"$MONTH-$DAY\",\"items\":[{\"stockItemId\":$STOCK_ITEM_ID,\"quantity\":0.3,\"price\":0.7}]}"
+  curl -s -o /dev/null -X POST "$BASE_URL/usages" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"stockItemId\":$STOCK_ITEM_ID,\"quantityUsed\":0.1,\"date\":\"$MONTH-$DAY\"}"
+done
+
+# Report jobs aggregate on every run; the monthly endpoint would mostly answer from its cache
+run_job() {
+  local type=$1
+  local id status
+  id=$(curl -s -X POST "$BASE_URL/reports/jobs" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"type\":\"$type\",\"from\":\"$MONTH-01\",\"to\":\"$MONTH-28\",\"grouping\":\"NONE\"}" \
+    | grep -o '"id":"[^"]*"' | cut -d'"' -f4)
+  while :; do
+    status=$(curl -s -H "Authorization: Bearer $TOKEN" "$BASE_URL/reports/jobs/$id" | grep -o '"status":"[A-Z]*"' | cut -d'"' -f4)
+    case "$status" in
+      QUEUED|RUNNING) ;;
+      *) break ;;
+    esac
+  done
+}
+
+measure() {
+  local type=$1
+  local start end
+  start=$(date +%s%N)
+  for _ in $(seq 1 "$REQUESTS"); do
+    run_job "$type"
+  done
+  end=$(date +%s%N)
+  awk -v label="$type report" -v n="$REQUESTS" -v ns=$((end - start)) \
+    'BEGIN { printf "%-20s %8.1f ms/report %8.1f reports/s\n", label, ns / n / 1e6, n / (ns / 1e9) }'
+}
+
+echo ""
+echo "Totals for $MONTH (expenses should be exactly $ROWS x 0.1, purchases $ROWS x 0.21):"
+curl -s -H "Authorization: Bearer $TOKEN" "$BASE_URL/reports/monthly?month=$MONTH"
+echo ""
+echo ""
+measure SUMMARY
+measure USAGE
@@ -0,0 +1,94 @@
+#!/bin/bash
+
+# Shows that a storm of analytics requests does not push usage recording past
+# its latency SLO. Measures POST /api/usages latency alone, then again while
+# concurrent workers hammer exports, supplier ranking and sync. Expects the
+# backend on localhost:8080 started with --rate-limit.enabled=false, so the
+# rate limiter does not hide the effect. For a before/after comparison, run it
+# again with --bulkhead.analytics.max-concurrent=1000 (effectively no bulkhead).
+#
+# Usage: bench/bulkhead.sh [usage-requests] [storm-workers]
+
+BASE_URL=${BASE_URL:-http://localhost:8080/api}
+REQUESTS=${1:-200}
+WORKERS=${2:-10}
+SLO_MS=${SLO_MS:-250}
+SEED=${SEED:-3000}
+
+TOKEN=$(curl -s -X POST "$BASE_URL/auth/login" \
+  -H "Content-Type: application/json" \
+  -d '{"username":"admin","password":"password"}' | grep -o '"token":"[^"]*"' | cut -d'"' -f4)
+
+if [ -z "$TOKEN" ]; then
+  echo "✗ Login failed"
+  exit 1
+fi
+
+STOCK_ID=$(curl -s -H "Authorization: Bearer $TOKEN" "$BASE_URL/stocks" | grep -o '"id":[0-9]*' | head -1 | cut -d: -f2)
+TMP=$(mktemp -d)
+trap 'kill $(jobs -p) 2>/dev/null; rm -rf "$TMP"' EXIT
+
+echo "Seeding $SEED expenses so analytics requests have work to do..."
+seq 1 "$SEED" | xargs -P 8 -I{} curl -s -o /dev/null -X POST "$BASE_URL/expenses" \
+  -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+  -d '{"category":"Supplies","amount":1,"description":"bulkhead bench","date":"2025-06-15"}'
+
+record_usages() {
+  local out=$1
+  : > "$out"
+  for i in $(seq 1 "$REQUESTS"); do
+    curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST "$BASE_URL/usages" \
+      -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+      -d "{\"stockItemId\":$STOCK_ID,\"quantityUsed\":0.001}" >> "$out"
+  done
+}
+
+summarize() {
+  local label=$1
+  local file=$2
+  local ok=$(grep -c '^200 ' "$file")
+  local other=$(grep -vc '^200 ' "$file")
+  awk '$1 == 200 { print $2 * 1000 }' "$file" | sort -n > "$file.sorted"
+  local n=$(wc -l < "$file.sorted")
+  local p50=$(awk -v n="$n" 'NR == int(n * 0.50) + 1 { print; exit }' "$file.sorted")
+  local p99=$(awk -v n="$n" 'NR == int(n * 0.99) + 1 { print; exit }' "$file.sorted")
+  printf "%-28s ok=%-5s failed=%-5s p50=%7.1f ms  p99=%7.1f ms\n" "$label" "$ok" "$other" "${p50:-0}" "${p99:-0}"
+  echo "${p99:-0}" > "$file.p99"
+}
+
+storm_worker() {
+  local out=$1
+  local urls=("$BASE_URL/exports/expenses?from=2000-01-01&to=2100-01-01"
+              "$BASE_URL/suppliers/ranking"
+              "$BASE_URL/sync?limit=5000")
+  local i=0
+  while true; do
+    curl -s -o /dev/null -w "%{http_code}\n" -H "Authorization: Bearer $TOKEN" "${urls[$((i % 3))]}" >> "$out"
+    i=$((i + 1))
+  done
+}
+
+echo ""
+record_usages "$TMP/baseline"
+summarize "Usages, idle" "$TMP/baseline"
+
+for w in $(seq 1 "$WORKERS"); do
+  storm_worker "$TMP/storm-$w" &
+done
+sleep 2
+record_usages "$TMP/storm"
+summarize "Usages, analytics storm" "$TMP/storm"
+kill $(jobs -p) 2>/dev/null
+wait 2>/dev/null
+
+cat "$TMP"/storm-* > "$TMP/storm-all"
+printf "%-28s ok=%-5s shed(503)=%-5s rate-limited(429)=%s\n" "Analytics requests" \
+  "$(grep -c '^200' "$TMP/storm-all")" "$(grep -c '^503' "$TMP/storm-all")" "$(grep -c '^429' "$TMP/storm-all")"
+
+echo ""
+if awk -v p="$(cat "$TMP/storm.p99")" -v slo="$SLO_MS" 'BEGIN { exit !(p <= slo) }'; then
+  echo "✓ Usage p99 under the storm is within the ${SLO_MS} ms SLO"
+else
+  echo "✗ Usage p99 under the storm exceeds the ${SLO_MS} ms SLO"
+  exit 1
+fi
@@ -0,0 +1,46 @@
+#!/bin/bash
+
+# Compares downloading a full list and filtering client-side against asking the
+# backend for the filtered, sorted subset. Expects the backend on localhost:8080.
+#
+# Usage: bench/list-filters.sh [rows-to-seed]
+
+BASE_URL=${BASE_URL:-http://localhost:8080/api}
+ROWS=${1:-2000}
+
+TOKEN=$(curl -s -X POST "$BASE_URL/auth/login" \
+  -H "Content-Type: application/json" \
+  -d '{"username":"admin","password":"password"}' | grep -o '"token":"[^"]*"' | cut -d'"' -f4)
+
+if [ -z "$TOKEN" ]; then
+  echo "✗ Login failed"
+  exit 1
+fi
+
+echo "Seeding $ROWS expenses..."
+for i in $(seq 1 "$ROWS"); do
+  MONTH=$(printf "%02d" $(( (i % 12) + 1 )))
+  CATEGORY=$([ $((i % 5)) -eq 0 ] && echo "Utilities" || echo "Supplies")
+  curl -s -o /dev/null -X POST "$BASE_URL/expenses" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"category\":\"$CATEGORY\",\"amount\":$i,\"description\":\"bench $i\",\"date\":\"2025-$MONTH-15\"}"
+done
+
+measure() {
+  local label=$1
+  local url=$2
+  local total_time=0
+  local size=0
+  for run in 1 2 3 4 5; do
+    read -r size time < <(curl -s -o /dev/null -w "%{size_download} %{time_total}\n" \
+      -H "Authorization: Bearer $TOKEN" "$url")
+    total_time=$(awk -v a="$total_time" -v b="$time" 'BEGIN { print a + b }')
+  done
+  printf "%-45s %10s bytes %8.1f ms (avg of 5)\n" "$label" "$size" "$(awk -v t="$total_time" 'BEGIN { print t * 200 }')"
+}
+
+echo ""
+echo "Utilities expenses in March 2025, newest first:"
+measure "Full list (client-side filter)" "$BASE_URL/expenses"
+measure "Server-side filter + sort" \
+  "$BASE_URL/expenses?category=Utilities&from=2025-03-01&to=2025-03-31&sort=date,desc"
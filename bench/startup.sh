@@ -0,0 +1,80 @@
+#!/bin/bash
+
+# Compares startup time and resident memory of the plain JAR, the AOT-processed
+# JAR with its AppCDS archive, and the native executable. Build first:
+#   (cd backend && mvn -Paot package -DskipTests)          # plain JAR + AOT/CDS
+#   (cd backend && mvn -Pnative native:compile -DskipTests) # native, needs GraalVM
+# Modes whose artifacts are missing are skipped. Port 8080 must be free.
+#
+# Usage: bench/startup.sh [runs-per-mode]
+
+RUNS=${1:-3}
+BACKEND=$(cd "$(dirname "$0")/../backend" && pwd)
+JAR=ges-0.0.1-SNAPSHOT.jar
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+LOG=$(mktemp)
+trap 'rm -f "$LOG"' EXIT
+
+# Prints "<seconds-until-first-response> <rss-mb>" for one start of the given command
+measure_once() {
+  local dir=$1
+  shift
+  local start=$(date +%s%N)
+  (cd "$dir" && exec "$@") > "$LOG" 2>&1 &
+  local pid=$!
+  local ready=""
+  for i in $(seq 1 600); do
+    if curl -s -o /dev/null localhost:8080/api/auth/login; then
+      ready=$(date +%s%N)
+      break
+    fi
+    if ! kill -0 "$pid" 2>/dev/null; then
+      break
+    fi
+    sleep 0.05
+  done
+  local rss=$(awk '/VmRSS/ { print $2 }' /proc/"$pid"/status 2>/dev/null)
+  kill "$pid" 2>/dev/null
+  wait "$pid" 2>/dev/null
+  if [ -z "$ready" ]; then
+    echo "✗ Did not start; last log lines:" >&2
+    tail -5 "$LOG" >&2
+    return 1
+  fi
+  awk -v s="$start" -v r="$ready" -v m="${rss:-0}" 'BEGIN { printf "%.2f %.0f\n", (r - s) / 1e9, m / 1024 }'
+}
+
+run_mode() {
+  local label=$1
+  local dir=$2
+  shift 2
+  local total_time=0
+  local total_rss=0
+  for run in $(seq 1 "$RUNS"); do
+    read -r seconds rss < <(measure_once "$dir" "$@") || return
+    total_time=$(awk -v a="$total_time" -v b="$seconds" 'BEGIN { print a + b }')
+    total_rss=$(awk -v a="$total_rss" -v b="$rss" 'BEGIN { print a + b }')
+  done
+  printf "%-22s %8.2f s to first response %8.0f MB RSS (avg of %d)\n" "$label" \
+    "$(awk -v t="$total_time" -v n="$RUNS" 'BEGIN { print t / n }')" \
+    "$(awk -v t="$total_rss" -v n="$RUNS" 'BEGIN { print t / n }')" "$RUNS"
+}
+
+if [ -f "$BACKEND/target/$JAR" ]; then
+  run_mode "JAR" "$BACKEND/target" "$JAVA" -jar "$JAR"
+else
+  echo "- JAR: target/$JAR not found, skipped"
+fi
+
+if [ -f "$BACKEND/target/aot-cds/application.jsa" ]; then
+  run_mode "AOT JAR + AppCDS" "$BACKEND/target/aot-cds" "$JAVA" -XX:SharedArchiveFile=application.jsa \
+    -Dspring.aot.enabled=true -jar "$JAR"
+else
+  echo "- AOT JAR + AppCDS: run mvn -Paot package first, skipped"
+fi
+
+if [ -x "$BACKEND/target/ges" ]; then
+  run_mode "Native" "$BACKEND/target" ./ges
+else
+  echo "- Native: run mvn -Pnative native:compile first, skipped"
+fi
@@ -0,0 +1,66 @@
+#!/bin/bash
+
+# Counts the Hibernate work done per request for a mix of reads and writes: transactions,
+# flushes, sessions, connections and statements, from the actuator's hibernate.* metrics.
+# Expects the backend on localhost:8080 with actuator on localhost:8081, started with
+# --rate-limit.enabled=false. For a before/after comparison, run it against a build from before
+# the service layer, or against this one with --spring.jpa.open-in-view=true.
+#
+# Usage: bench/transactions.sh [requests-per-endpoint]
+
+BASE_URL=${BASE_URL:-http://localhost:8080/api}
+METRICS_URL=${METRICS_URL:-http://localhost:8081/actuator/metrics}
+REQUESTS=${1:-200}
+
+TOKEN=$(curl -s -X POST "$BASE_URL/auth/login" \
+  -H "Content-Type: application/json" \
+  -d '{"username":"admin","password":"password"}' | grep -o '"token":"[^"]*"' | cut -d'"' -f4)
+
+if [ -z "$TOKEN" ]; then
+  echo "✗ Login failed"
+  exit 1
+fi
+
+STOCK_ID=$(curl -s -H "Authorization: Bearer $TOKEN" "$BASE_URL/stocks" | grep -o '"id":[0-9]*' | head -1 | cut -d: -f2)
+
+METRICS="hibernate.transactions hibernate.flushes hibernate.sessions.open hibernate.connections.obtained hibernate.entities.loads hibernate.statements?tag=status:prepared"
+
+metric() {
+  curl -s "$METRICS_URL/$1" | grep -o '"value":[0-9.E+-]*' | head -1 | cut -d: -f2
+}
+
+snapshot() {
+  for m in $METRICS; do
+    printf "%s " "$(metric "$m")"
+  done
+}
+
+measure() {
+  local label=$1
+  shift
+  local before after start end
+  before=$(snapshot)
+  start=$(date +%s%N)
+  for _ in $(seq 1 "$REQUESTS"); do
+    curl -s -o /dev/null -H "Authorization: Bearer $TOKEN" "$@"
+  done
+  end=$(date +%s%N)
+  after=$(snapshot)
+  awk -v label="$label" -v n="$REQUESTS" -v ns=$((end - start)) -v before="$before" -v after="$after" 'BEGIN {
+    split(before, b, " "); split(after, a, " ")
+    printf "%-22s %6.1f ms", label, ns / n / 1e6
+    for (i = 1; i <= 6; i++) printf " %8.2f", (a[i] - b[i]) / n
+    printf "\n"
+  }'
+}
+
+echo "Per request, averaged over $REQUESTS requests each:"
+printf "%-22s %9s %8s %8s %8s %8s %8s %8s\n" "" "latency" "commits" "flushes" "sessions" "conns" "loads" "stmts"
+measure "GET /stocks/{id}" "$BASE_URL/stocks/$STOCK_ID"
+measure "GET /usages" "$BASE_URL/usages"
+measure "GET /purchases" "$BASE_URL/purchases"
+measure "POST /usages" -X POST -H "Content-Type: application/json" \
+  -d "{\"stockItemId\":$STOCK_ID,\"quantityUsed\":0.001}" "$BASE_URL/usages"
+measure "POST /purchases" -X POST -H "Content-Type: application/json" \
+  -d "{\"supplierId\":1,\"date\":\"2030-01-15\",\"items\":[{\"stockItemId\":$STOCK_ID,\"quantity\":1,\"price\":1}]}" \
+  "$BASE_URL/purchases"
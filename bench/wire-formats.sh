@@ -0,0 +1,80 @@
+#!/bin/bash
+
+# Compares the list endpoints across wire formats: JSON, CBOR, the columnar layout of each, with
+# and without gzip. Reports the bytes on the wire per response, the latency, and the server CPU
+# per request from the actuator's process.cpu.time. Queries and security cost the same in every
+# variant, so the CPU differences are the encoding. Expects the backend on localhost:8080 with
+# actuator on localhost:8081, started with --rate-limit.enabled=false.
+#
+# Usage: bench/wire-formats.sh [rows-to-seed] [requests-per-variant]
+
+BASE_URL=${BASE_URL:-http://localhost:8080/api}
+METRICS_URL=${METRICS_URL:-http://localhost:8081/actuator/metrics}
+ROWS=${1:-1000}
+REQUESTS=${2:-200}
+WARMUP=${WARMUP:-50}
+
+TOKEN=$(curl -s -X POST "$BASE_URL/auth/login" \
+  -H "Content-Type: application/json" \
+  -d '{"username":"admin","password":"password"}' | grep -o '"token":"[^"]*"' | cut -d'"' -f4)
+
+if [ -z "$TOKEN" ]; then
+  echo "✗ Login failed"
+  exit 1
+fi
+
+STOCK_ITEM_ID=$(curl -s -H "Authorization: Bearer $TOKEN" "$BASE_URL/stocks" | grep -o '"id":[0-9]*' | head -1 | cut -d: -f2)
+
+echo "Seeding $ROWS purchases and usages..."
+for i in $(seq 1 "$ROWS"); do
+  DAY=$(printf "%02d" $(( (i % 28) + 1 )))
+  curl -s -o /dev/null -X POST "$BASE_URL/purchases" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"supplierId\":1,\"date\":\"2030-05-$DAY\",\"items\":[{\"stockItemId\":$STOCK_ITEM_ID,\"quantity\":0.3,\"price\":0.7},{\"stockItemId\":$STOCK_ITEM_ID,\"quantity\":1.5,\"price\":2.25}]}"
+  curl -s -o /dev/null -X POST "$BASE_URL/usages" \
+    -H "Authorization: Bearer $TOKEN" -H "Content-Type: application/json" \
+    -d "{\"stockItemId\":$STOCK_ITEM_ID,\"quantityUsed\":0.1,\"date\":\"2030-05-$DAY\"}"
+done
+
+cpu_time() {
+  curl -s "$METRICS_URL/process.cpu.time" | grep -o '"value":[0-9.E+-]*' | head -1 | cut -d: -f2
+}
+
+measure() {
+  local path=$1 accept=$2 layout=$3 gzip=$4
+  local compressed=() bytes before after start end
+  if [ "$gzip" = "gzip" ]; then
+    compressed=(--compressed)
+  fi
+  # size_download counts the body as received, so before decompression
+  bytes=$(curl -s -o /dev/null -w "%{size_download}" "${compressed[@]}" -H "Authorization: Bearer $TOKEN" \
+    -H "Accept: $accept" "$BASE_URL$path?layout=$layout")
+  # Unmeasured requests first, so every variant is timed with its code paths compiled
+  for _ in $(seq 1 "$WARMUP"); do
+    curl -s -o /dev/null "${compressed[@]}" -H "Authorization: Bearer $TOKEN" -H "Accept: $accept" "$BASE_URL$path?layout=$layout"
+  done
+  before=$(cpu_time)
+  start=$(date +%s%N)
+  for _ in $(seq 1 "$REQUESTS"); do
+    curl -s -o /dev/null "${compressed[@]}" -H "Authorization: Bearer $TOKEN" -H "Accept: $accept" "$BASE_URL$path?layout=$layout"
+  done
+  end=$(date +%s%N)
+  after=$(cpu_time)
+  awk -v label="$path ${accept#application/} $layout $gzip" -v bytes="$bytes" -v n="$REQUESTS" \
+    -v ns=$((end - start)) -v before="$before" -v after="$after" 'BEGIN {
+    printf "%-36s %10d %9.2f ms %9.2f ms\n", label, bytes, ns / n / 1e6, (after - before) / n / 1e6
+  }'
+}
+
+echo ""
+echo "Per response, averaged over $REQUESTS requests each:"
+printf "%-36s %10s %12s %12s\n" "" "bytes" "latency" "server cpu"
+for path in /usages /purchases; do
+  for accept in application/json application/cbor; do
+    for layout in rows columnar; do
+      for gzip in identity gzip; do
+        measure "$path" "$accept" "$layout" "$gzip"
+      done
+    done
+  done
+done
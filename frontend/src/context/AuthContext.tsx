@@ -10,7 +10,7 @@ import { authAPI } from "../services/api";
 interface AuthContextType {
   isAuthenticated: boolean;
   user: { username: string; role: string } | null;
-  login: (username: string, password: string) => Promise<void>;
+  login: (username: string, password: string, branch?: string) => Promise<void>;
   logout: () => void;
   loading: boolean;
 }
@@ -35,9 +35,9 @@ export function AuthProvider({ children }: { children: React.ReactNode }) {
     setLoading(false);
   }, []);
 
-  const login = useCallback(async (username: string, password: string) => {
+  const login = useCallback(async (username: string, password: string, branch?: string) => {
     try {
-      const response = await authAPI.login(username, password);
+      const response = await authAPI.login(username, password, branch);
       const { token, role } = response.data;
 
       localStorage.setItem("token", token);
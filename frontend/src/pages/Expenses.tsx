@@ -98,7 +98,7 @@ export default function Expenses() {
     try {
       if (editingExpense) {
         // Update existing expense
-        await expenseAPI.update(editingExpense.id!, formData);
+        await expenseAPI.update(editingExpense.id!, formData, editingExpense.version);
         toast.success("Expense updated successfully");
       } else {
         // Create new expense
@@ -15,6 +15,7 @@ import { toast } from "sonner";
 export default function Login() {
   const [username, setUsername] = useState("");
   const [password, setPassword] = useState("");
+  const [branch, setBranch] = useState("");
   const [loading, setLoading] = useState(false);
   const navigate = useNavigate();
   const { login } = useAuth();
@@ -24,7 +25,7 @@ export default function Login() {
     setLoading(true);
 
     try {
-      await login(username, password);
+      await login(username, password, branch.trim() || undefined);
       toast.success("Login successful!");
       navigate("/dashboard");
     } catch (error: unknown) {
@@ -75,6 +76,18 @@ export default function Login() {
                 required
               />
             </div>
+            <div className="space-y-2">
+              <label htmlFor="branch" className="text-sm font-medium">
+                Branch
+              </label>
+              <Input
+                id="branch"
+                type="text"
+                placeholder="main"
+                value={branch}
+                onChange={(e) => setBranch(e.target.value)}
+              />
+            </div>
             <Button type="submit" className="w-full" disabled={loading}>
               {loading ? "Logging in..." : "Login"}
             </Button>
@@ -99,7 +99,7 @@ export default function Stocks() {
 
     try {
       if (editingStock) {
-        await stockAPI.update(editingStock.id!, formData);
+        await stockAPI.update(editingStock.id!, formData, editingStock.version);
         toast.success("Stock updated successfully");
       } else {
         await stockAPI.create(formData);
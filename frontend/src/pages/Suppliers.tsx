@@ -65,7 +65,7 @@ export default function Suppliers() {
     try {
       if (editingSupplier) {
         // Update existing supplier
-        await supplierAPI.update(editingSupplier.id!, formData);
+        await supplierAPI.update(editingSupplier.id!, formData, editingSupplier.version);
         toast.success("Supplier updated successfully");
       } else {
         // Create new supplier
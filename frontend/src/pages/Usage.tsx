@@ -33,6 +33,7 @@ export default function UsagePage() {
   const [loading, setLoading] = useState(true);
   const [showForm, setShowForm] = useState(false);
   const [editingId, setEditingId] = useState<number | null>(null);
+  const [editingVersion, setEditingVersion] = useState<number | undefined>();
   const [formData, setFormData] = useState({
     stockItemId: 0,
     quantityUsed: 0,
@@ -114,7 +115,7 @@ export default function UsagePage() {
 
     try {
       if (editingId) {
-        await usageAPI.update(editingId, formData);
+        await usageAPI.update(editingId, formData, editingVersion);
         toast.success("Usage updated successfully");
       } else {
         await usageAPI.create(formData);
@@ -155,6 +156,7 @@ export default function UsagePage() {
 
   const handleEdit = (usage: UsageRecord) => {
     setEditingId(usage.id || null);
+    setEditingVersion(usage.version);
     setFormData({
       stockItemId: usage.stockItemId,
       quantityUsed: usage.quantityUsed,
@@ -177,7 +177,7 @@ export default function Users() {
 
   const handleRoleChange = async (user: User, newRole: Role) => {
     try {
-      await userAPI.update(user.id, { role: newRole });
+      await userAPI.updateRole(user.id, newRole, user.version);
       toast.success("User role updated successfully");
       fetchUsers();
     } catch (error) {
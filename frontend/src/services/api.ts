@@ -1,7 +1,9 @@
 import axios from "axios";
 import type {
   StockItem,
+  StockSearchResult,
   Supplier,
+  SupplierSearchResult,
   Purchase,
   UsageRecord,
   Expense,
@@ -11,8 +13,16 @@ import type {
   UserUpdateData,
 } from "../types";
 
+// Optional server-side filters and sort for the list endpoints, e.g.
+// { category: "Meat", from: "2025-01-01", to: "2025-01-31", sort: "date,desc" }
+export type ListQuery = Record<string, string | number | boolean | undefined>;
+
 const API_BASE_URL = "http://localhost:8080/api";
 
+// Updates must carry the version they were edited from; the server answers 412 if it moved on
+const ifMatch = (version?: number) =>
+  version !== undefined ? { headers: { "If-Match": `"${version}"` } } : undefined;
+
 export const api = axios.create({
   baseURL: API_BASE_URL,
 });
@@ -75,11 +85,13 @@ interface RegisterData {
 
 // Auth API
 export const authAPI = {
-  login: (username: string, password: string) =>
-    api.post<{ token: string; role: string; username: string }>("/auth/login", {
-      username,
-      password,
-    }),
+  // The branch only matters at login; the token carries it afterwards
+  login: (username: string, password: string, branch?: string) =>
+    api.post<{ token: string; role: string; username: string }>(
+      "/auth/login",
+      { username, password },
+      branch ? { headers: { "X-Branch": branch } } : undefined
+    ),
   register: (data: RegisterData) =>
     api.post<{ token: string; role: string; message: string }>(
       "/auth/register",
@@ -89,11 +101,14 @@ export const authAPI = {
 
 // Stock API
 export const stockAPI = {
-  getAll: () => api.get<StockItem[]>("/stocks"),
+  getAll: (query?: ListQuery) =>
+    api.get<StockItem[]>("/stocks", { params: query }),
   getById: (id: number) => api.get<StockItem>(`/stocks/${id}`),
+  search: (q: string, limit = 10) =>
+    api.get<StockSearchResult[]>("/stocks/search", { params: { q, limit } }),
   create: (data: StockItem) => api.post<StockItem>("/stocks", data),
-  update: (id: number, data: StockItem) =>
-    api.put<StockItem>(`/stocks/${id}`, data),
+  update: (id: number, data: StockItem, version?: number) =>
+    api.put<StockItem>(`/stocks/${id}`, data, ifMatch(version)),
   delete: (id: number) => api.delete<void>(`/stocks/${id}`),
 };
 
@@ -101,37 +116,49 @@ export const stockAPI = {
 export const supplierAPI = {
   getAll: () => api.get<Supplier[]>("/suppliers"),
   getById: (id: number) => api.get<Supplier>(`/suppliers/${id}`),
+  search: (q: string, limit = 10) =>
+    api.get<SupplierSearchResult[]>("/suppliers/search", { params: { q, limit } }),
   create: (data: Supplier) => api.post<Supplier>("/suppliers", data),
-  update: (id: number, data: Supplier) =>
-    api.put<Supplier>(`/suppliers/${id}`, data),
+  update: (id: number, data: Supplier, version?: number) =>
+    api.put<Supplier>(`/suppliers/${id}`, data, ifMatch(version)),
   delete: (id: number) => api.delete<void>(`/suppliers/${id}`),
 };
 
 // Purchase API
 export const purchaseAPI = {
-  getAll: () => api.get<Purchase[]>("/purchases"),
+  getAll: (query?: ListQuery) =>
+    api.get<Purchase[]>("/purchases", { params: query }),
   getById: (id: number) => api.get<Purchase>(`/purchases/${id}`),
-  create: (data: Purchase) => api.post<Purchase>("/purchases", data),
+  // Reuse the same key when retrying so the server does not record the purchase twice
+  create: (data: Purchase, idempotencyKey: string = crypto.randomUUID()) =>
+    api.post<Purchase>("/purchases", data, {
+      headers: { "Idempotency-Key": idempotencyKey },
+    }),
   delete: (id: number) => api.delete<void>(`/purchases/${id}`),
 };
 
 // Usage API
 export const usageAPI = {
-  getAll: () => api.get<UsageRecord[]>("/usages"),
+  getAll: (query?: ListQuery) =>
+    api.get<UsageRecord[]>("/usages", { params: query }),
   getById: (id: number) => api.get<UsageRecord>(`/usages/${id}`),
-  create: (data: UsageRecord) => api.post<UsageRecord>("/usages", data),
-  update: (id: number, data: UsageRecord) =>
-    api.put<UsageRecord>(`/usages/${id}`, data),
+  create: (data: UsageRecord, idempotencyKey: string = crypto.randomUUID()) =>
+    api.post<UsageRecord>("/usages", data, {
+      headers: { "Idempotency-Key": idempotencyKey },
+    }),
+  update: (id: number, data: UsageRecord, version?: number) =>
+    api.put<UsageRecord>(`/usages/${id}`, data, ifMatch(version)),
   delete: (id: number) => api.delete<void>(`/usages/${id}`),
 };
 
 // Expense API
 export const expenseAPI = {
-  getAll: () => api.get<Expense[]>("/expenses"),
+  getAll: (query?: ListQuery) =>
+    api.get<Expense[]>("/expenses", { params: query }),
   getById: (id: number) => api.get<Expense>(`/expenses/${id}`),
   create: (data: Expense) => api.post<Expense>("/expenses", data),
-  update: (id: number, data: Expense) =>
-    api.put<Expense>(`/expenses/${id}`, data),
+  update: (id: number, data: Expense, version?: number) =>
+    api.put<Expense>(`/expenses/${id}`, data, ifMatch(version)),
   delete: (id: number) => api.delete<void>(`/expenses/${id}`),
 };
 
@@ -146,6 +173,8 @@ export const userAPI = {
   getAll: () => api.get<User[]>("/users"),
   update: (id: number, data: UserUpdateData) =>
     api.put<User>(`/users/${id}`, data),
+  updateRole: (id: number, role: Role, version?: number) =>
+    api.patch<User>(`/users/${id}/role`, { role }, ifMatch(version)),
   updatePassword: (id: number, data: { password: string }) =>
     api.put<void>(`/users/${id}/password`, data),
   delete: (id: number) => api.delete<void>(`/users/${id}`),
@@ -9,6 +9,7 @@ export interface UserInfo {
 
 export interface User {
   id: number;
+  version?: number;
   username: string;
   fullName: string;
   role: Role;
@@ -22,6 +23,7 @@ export interface UserUpdateData {
 
 export interface StockItem {
   id?: number;
+  version?: number; // echoed back in If-Match on update
   name: string;
   category: string;
   quantity: number; // backend uses Double -> number
@@ -31,11 +33,26 @@ export interface StockItem {
 
 export interface Supplier {
   id?: number;
+  version?: number; // echoed back in If-Match on update
   name: string;
   phone: string;
   email: string;
 }
 
+export interface StockSearchResult {
+  id: number;
+  name: string;
+  category: string;
+  score: number;
+}
+
+export interface SupplierSearchResult {
+  id: number;
+  name: string;
+  contactPerson?: string;
+  score: number;
+}
+
 export interface PurchaseItem {
   id?: number;
   stockItemId: number;
@@ -53,6 +70,7 @@ export interface Purchase {
 
 export interface UsageRecord {
   id?: number;
+  version?: number; // echoed back in If-Match on update
   stockItemId: number;
   quantityUsed: number;
   date: string; // LocalDate as YYYY-MM-DD
@@ -60,6 +78,7 @@ export interface UsageRecord {
 
 export interface Expense {
   id?: number;
+  version?: number; // echoed back in If-Match on update
   category: string;
   amount: number;
   date?: string; // LocalDate